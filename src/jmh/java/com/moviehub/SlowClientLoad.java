@@ -0,0 +1,153 @@
+package com.moviehub;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Load run comparing request handling on platform and virtual threads: slow clients hold downloads open
+ * while metadata calls are timed one after another. Start the application, once plain and once with
+ * -Pvirtual-threads, with a large file in file.upload.path, then run it against it (it only needs the JDK):
+ * <pre>
+ * java -Dload.file=large.bin -Dload.slowClients=400 src/jmh/java/com/moviehub/SlowClientLoad.java
+ * </pre>
+ * Settings (system properties): load.baseUrl (http://localhost:8080), load.file (name of the downloaded file),
+ * load.slowClients (400), load.rate (bytes per second per slow client, 40960), load.rampUp (seconds the slow
+ * clients get to connect, 10), load.probes (200) and load.timeout (seconds per probe, 3).
+ */
+public final class SlowClientLoad {
+
+    private static final String[] PROBES = {"/api/v1/cache/stats", "/file/exists/"};
+
+    private SlowClientLoad() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        URI baseUrl = URI.create(System.getProperty("load.baseUrl", "http://localhost:8080"));
+        String file = System.getProperty("load.file");
+        if (file == null) {
+            throw new IllegalArgumentException("Set -Dload.file to the name of a large file in file.upload.path");
+        }
+        int slowClients = Integer.getInteger("load.slowClients", 400);
+        int rate = Integer.getInteger("load.rate", 40 * 1024);
+        int rampUp = Integer.getInteger("load.rampUp", 10);
+        int probes = Integer.getInteger("load.probes", 200);
+        Duration timeout = Duration.ofSeconds(Integer.getInteger("load.timeout", 3));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Map<String, Integer> statuses = new ConcurrentHashMap<>();
+        try (ExecutorService downloads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < slowClients; i++) {
+                downloads.submit(() -> slowDownload(baseUrl, file, rate, running, statuses));
+            }
+            Thread.sleep(Duration.ofSeconds(rampUp));
+            Map<String, Integer> answered = new ConcurrentSkipListMap<>(statuses);
+            int waiting = slowClients - answered.values().stream().mapToInt(Integer::intValue).sum();
+            System.out.println("slow downloads by status " + answered + ", " + waiting + " without a response yet");
+
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(timeout)
+                    .build();
+            List<Long> latencies = new ArrayList<>();
+            int timedOut = 0;
+            for (int i = 0; i < probes; i++) {
+                String path = PROBES[i % PROBES.length];
+                HttpRequest request = HttpRequest.newBuilder(baseUrl.resolve(path.endsWith("/") ? path + file : path))
+                        .timeout(timeout)
+                        .build();
+                long start = System.nanoTime();
+                try {
+                    client.send(request, HttpResponse.BodyHandlers.discarding());
+                    latencies.add(System.nanoTime() - start);
+                } catch (IOException e) {
+                    timedOut++;
+                }
+            }
+            running.set(false);
+            downloads.shutdownNow();
+            report(slowClients, latencies, timedOut);
+        }
+    }
+
+    /**
+     * Downloads the file over a raw socket with a small receive buffer, reading no faster than the rate,
+     * so the server keeps blocking on a full send buffer as it would for a client on a slow link.
+     * Counts the response status once the status line has arrived.
+     */
+    private static void slowDownload(URI baseUrl, String file, int rate, AtomicBoolean running,
+                                     Map<String, Integer> statuses) {
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(16 * 1024);
+            int port = baseUrl.getPort() < 0 ? 80 : baseUrl.getPort();
+            socket.connect(new InetSocketAddress(baseUrl.getHost(), port));
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /file/download/" + file + " HTTP/1.1\r\nHost: " + baseUrl.getHost()
+                    + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[4096];
+            long start = System.nanoTime();
+            long received = 0;
+            boolean counted = false;
+            while (running.get()) {
+                int n = in.read(buffer);
+                if (n < 0) {
+                    break;
+                }
+                if (!counted) {
+                    // "HTTP/1.1 200 ..." arrives in the first packet
+                    String statusLine = new String(buffer, 0, n, StandardCharsets.US_ASCII);
+                    String status = statusLine.length() >= 12 ? statusLine.substring(9, 12) : "?";
+                    statuses.merge(status, 1, Integer::sum);
+                    counted = true;
+                }
+                received += n;
+                long due = start + received * 1_000_000_000L / rate;
+                long ahead = due - System.nanoTime();
+                if (ahead > 0) {
+                    Thread.sleep(Duration.ofNanos(ahead));
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            // Interrupted when the run ends, or the server gave up on the client
+        }
+    }
+
+    private static void report(int slowClients, List<Long> latencies, int timedOut) {
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.println("slow downloads  p50        p99        max        timed out");
+        System.out.printf("%-15d %-10s %-10s %-10s %d%n", slowClients,
+                millis(percentile(sorted, 50)), millis(percentile(sorted, 99)),
+                millis(sorted.length == 0 ? -1 : sorted[sorted.length - 1]), timedOut);
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return -1;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static String millis(long nanos) {
+        return nanos < 0 ? "-" : String.format("%.1f ms", nanos / 1_000_000.0);
+    }
+}
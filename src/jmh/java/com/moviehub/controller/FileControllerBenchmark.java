@@ -0,0 +1,43 @@
+package com.moviehub.controller;
+
+import com.moviehub.service.FileServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Content type resolution done for every download
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class FileControllerBenchmark {
+
+    @Param({"poster.JPG", "trailer.mp4", "archive.tar.gz", "README"})
+    private String fileName;
+
+    private FileController fileController;
+
+    @Setup
+    public void setUp() {
+        fileController = new FileController(new FileServiceImpl(null), null, null, null, null);
+    }
+
+    @Benchmark
+    public String determineContentType() {
+        return fileController.determineContentType(fileName);
+    }
+}
@@ -0,0 +1,46 @@
+package com.moviehub.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moviehub.dto.MovieDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the movieDTO part of add-movie and update requests
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class MovieControllerBenchmark {
+
+    private static final String MOVIE_JSON = """
+            {"title":"The Dark Knight","director":"Christopher Nolan","studio":"Warner Bros.",
+             "movieCast":["Christian Bale","Heath Ledger","Aaron Eckhart","Michael Caine"],
+             "releaseYear":2008,"poster":"dark-knight.jpg"}""";
+
+    private MovieController movieController;
+
+    @Setup
+    public void setUp() {
+        movieController = new MovieController(null, null, null, new ObjectMapper());
+    }
+
+    @Benchmark
+    public MovieDTO convertToMovieDTO() throws JsonProcessingException {
+        return movieController.convertToMovieDTO(MOVIE_JSON);
+    }
+}
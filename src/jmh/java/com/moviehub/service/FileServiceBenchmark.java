@@ -0,0 +1,53 @@
+package com.moviehub.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * File name sanitizing and size formatting of FileServiceImpl, both called for every upload
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class FileServiceBenchmark {
+
+    @Param({"poster.jpg", "The Dark Knight (2008) - Official Poster [HD].jpeg"})
+    private String fileName;
+
+    private FileServiceImpl fileService;
+
+    private MultipartFile file;
+
+    @Setup
+    public void setUp() {
+        fileService = new FileServiceImpl(null);
+        // Only getSize() is read, so the content length is the size being formatted
+        file = new MockMultipartFile("file", fileName, "image/jpeg", new byte[1_536_000]);
+    }
+
+    @Benchmark
+    public String sanitizeFileName() {
+        return fileService.sanitizeFileName(fileName);
+    }
+
+    @Benchmark
+    public String getReadableFileSize() {
+        return fileService.getReadableFileSize(file);
+    }
+}
@@ -0,0 +1,77 @@
+package com.moviehub.service;
+
+import com.moviehub.dto.MovieDTO;
+import com.moviehub.dto.MoviePageResponse;
+import com.moviehub.dto.MovieRow;
+import com.moviehub.repository.MovieRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MovieRow to MovieDTO mapping of MovieServiceImpl, measured through getAllMovies and getAllMoviesWithPagination
+ * against a repository that returns prebuilt rows (three actors per movie), so only the mapping is timed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class MovieMappingBenchmark {
+
+    @Param({"10", "1000"})
+    private int movieCount;
+
+    private MovieServiceImpl movieService;
+
+    @Setup
+    public void setUp() {
+        List<MovieRow> rows = new ArrayList<>(movieCount * 3);
+        List<Long> movieIds = new ArrayList<>(movieCount);
+        for (long id = 1; id <= movieCount; id++) {
+            for (long actor = id; actor < id + 3; actor++) {
+                rows.add(new MovieRow(id, "Movie " + id, "Director " + id % 50, "Studio " + id % 10,
+                        1950 + (int) (id % 75), "poster-" + id + ".jpg", "Actor " + actor));
+            }
+            movieIds.add(id);
+        }
+
+        MovieRepository repository = (MovieRepository) Proxy.newProxyInstance(MovieRepository.class.getClassLoader(),
+                new Class<?>[]{MovieRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findAllRows", "findRowsByMovieIdIn" -> rows;
+                    case "findMovieIds" -> new PageImpl<>(movieIds, (Pageable) args[0], movieIds.size());
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+
+        MovieMapper movieMapper = new MovieMapper();
+        ReflectionTestUtils.setField(movieMapper, "baseUrl", "http://localhost:8080");
+        movieService = new MovieServiceImpl(repository, null, null, new MovieCacheInvalidator(null), null, movieMapper, null, null);
+    }
+
+    @Benchmark
+    public List<MovieDTO> getAllMovies() {
+        return movieService.getAllMovies();
+    }
+
+    @Benchmark
+    public MoviePageResponse getAllMoviesWithPagination() {
+        return movieService.getAllMoviesWithPagination(0, movieCount);
+    }
+}
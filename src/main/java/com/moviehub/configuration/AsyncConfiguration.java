@@ -0,0 +1,79 @@
+package com.moviehub.configuration;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executors for background work that must not run on request threads.
+ * Every pool is bounded in threads and queue length so a burst of uploads cannot grow memory without limit.
+ * With spring.threads.virtual.enabled the pools run their tasks on virtual threads but keep their bounds.
+ */
+@Configuration
+@Log4j2
+public class AsyncConfiguration {
+
+    /**
+     * Writes the bodies of asynchronous responses: downloads, file listings and the NDJSON export.
+     * Declaring the executors below switches off Spring Boot's own applicationTaskExecutor, so it is declared
+     * here under that name, which Spring MVC picks up for async requests; bodies it cannot take are answered
+     * with 503. The bound stays with virtual threads: Tomcat waits for a slow client's socket inside a monitor,
+     * which pins the carrier on Java 21, so each blocked write still takes a platform thread, and past the
+     * scheduler's 256 carriers every virtual thread, request handling included, would stall.
+     */
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public ThreadPoolTaskExecutor applicationTaskExecutor(@Value("${web.async.pool-size:200}") int poolSize,
+                                                          @Value("${web.async.queue-capacity:100}") int queueCapacity,
+                                                          @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("mvc-async-");
+        executor.setVirtualThreads(virtualThreads);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "posterVariantExecutor")
+    public ThreadPoolTaskExecutor posterVariantExecutor(@Value("${poster.variants.pool-size:2}") int poolSize,
+                                                        @Value("${poster.variants.queue-capacity:100}") int queueCapacity,
+                                                        @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("poster-variant-");
+        // Resizing is CPU bound, so the pool size still caps how many posters render at once
+        executor.setVirtualThreads(virtualThreads);
+        // A dropped task is harmless: the variant is rendered on demand at first download
+        executor.setRejectedExecutionHandler((task, pool) ->
+                log.warn("Poster variant queue is full, variant will be generated on demand"));
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Workers storing uploads accepted with 202. UploadJobService admits no more uploads than the pool
+     * and queue can hold, so the default abort policy is only a safety net.
+     */
+    @Bean(name = "uploadProcessingExecutor")
+    public ThreadPoolTaskExecutor uploadProcessingExecutor(@Value("${file.processing.pool-size:4}") int poolSize,
+                                                           @Value("${file.processing.queue-capacity:50}") int queueCapacity,
+                                                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("upload-processing-");
+        executor.setVirtualThreads(virtualThreads);
+        // Let queued jobs finish on shutdown, their staged files would otherwise be left behind
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,47 @@
+package com.moviehub.configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Local read-through caches for movie reads.
+ * Both caches are bounded by size and TTL and evict with Caffeine's W-TinyLFU policy;
+ * statistics are recorded so hit rates can be inspected and the sizes tuned.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+
+    public static final String MOVIES_CACHE = "movies";
+
+    public static final String MOVIE_PAGES_CACHE = "moviePages";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${movie.cache.by-id.maximum-size:10000}") long moviesMaximumSize,
+                                     @Value("${movie.cache.by-id.expire-after-write:PT10M}") Duration moviesTtl,
+                                     @Value("${movie.cache.pages.maximum-size:1000}") long pagesMaximumSize,
+                                     @Value("${movie.cache.pages.expire-after-write:PT5M}") Duration pagesTtl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Static mode: only the caches registered below exist, an unknown name fails instead of creating an unbounded cache
+        cacheManager.setCacheNames(List.of());
+        cacheManager.registerCustomCache(MOVIES_CACHE, Caffeine.newBuilder()
+                .maximumSize(moviesMaximumSize)
+                .expireAfterWrite(moviesTtl)
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(MOVIE_PAGES_CACHE, Caffeine.newBuilder()
+                .maximumSize(pagesMaximumSize)
+                .expireAfterWrite(pagesTtl)
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+}
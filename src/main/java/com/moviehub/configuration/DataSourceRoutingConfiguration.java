@@ -0,0 +1,80 @@
+package com.moviehub.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read/write splitting, enabled by listing replicas in datasource.replicas.urls. Read-only transactions
+ * ({@code @Transactional(readOnly = true)}) run on a replica, everything else on the primary
+ * (spring.datasource.url). The choice is made when a transaction runs its first statement: the
+ * LazyConnectionDataSourceProxy only fetches a physical connection once it knows whether the transaction is read-only.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replicas.urls")
+public class DataSourceRoutingConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaDataSource replicaDataSource(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                               @Value("${datasource.replicas.urls}") List<String> urls,
+                                               @Value("${datasource.replicas.username:${spring.datasource.username}}") String username,
+                                               @Value("${datasource.replicas.password:${spring.datasource.password}}") String password,
+                                               @Value("${datasource.replicas.maximum-pool-size:10}") int maximumPoolSize,
+                                               @Value("${datasource.replicas.connection-timeout:PT5S}") Duration connectionTimeout) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.strip())
+                    .username(username)
+                    .password(password)
+                    .build();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setMaximumPoolSize(maximumPoolSize);
+            // Short, so a replica that went down is skipped quickly instead of stalling the read
+            replica.setConnectionTimeout(connectionTimeout.toMillis());
+            // A replica that is down at startup must not fail the application, it joins once it answers
+            replica.setInitializationFailTimeout(-1);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReplicaDataSource(primaryDataSource, replicas, (int) Math.max(1, connectionTimeout.toSeconds()));
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+
+    /**
+     * Requests that may write run entirely on the primary. Besides read-your-writes, this matters because
+     * the EntityManager of a request (open-in-view) keeps the connection of its first transaction, so a
+     * read-only transaction followed by a write in the same request would otherwise write through a replica connection.
+     */
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(@Value("${datasource.read-your-writes:PT5S}") Duration window) {
+        return new ReadYourWritesFilter(window);
+    }
+}
@@ -0,0 +1,33 @@
+package com.moviehub.configuration;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.util.UrlPathHelper;
+
+/**
+ * Multipart resolution for every endpoint except the streaming upload, whose body must reach the
+ * controller unread: resolving it would spool the whole file to a servlet temp file first.
+ */
+@Configuration
+public class MultipartConfiguration {
+
+    public static final String STREAMING_UPLOAD_PATH = "/file/upload/stream";
+
+    @Bean(name = DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+    public StandardServletMultipartResolver multipartResolver(MultipartProperties multipartProperties) {
+        UrlPathHelper pathHelper = UrlPathHelper.defaultInstance;
+        StandardServletMultipartResolver resolver = new StandardServletMultipartResolver() {
+            @Override
+            public boolean isMultipart(HttpServletRequest request) {
+                return super.isMultipart(request)
+                        && !STREAMING_UPLOAD_PATH.equals(pathHelper.getPathWithinApplication(request));
+            }
+        };
+        resolver.setResolveLazily(multipartProperties.isResolveLazily());
+        return resolver;
+    }
+}
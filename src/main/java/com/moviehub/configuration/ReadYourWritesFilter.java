@@ -0,0 +1,79 @@
+package com.moviehub.configuration;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Keeps requests that may write on the primary, and gives their clients read-your-writes: the response
+ * carries a cookie, and for as long as the cookie says (the expected replication lag) that client's reads
+ * go to the primary too, so it sees its own changes. Only the request thread sticks to the primary;
+ * bodies streamed from another thread read from replicas.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE_NAME = "primary-until";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final Duration window;
+
+    /**
+     * @param window how long after a write the client keeps reading from the primary, zero for not at all
+     */
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean writes = !SAFE_METHODS.contains(request.getMethod());
+        if (writes && window.isPositive()) {
+            // Added before the chain runs, once the body is written the headers are gone
+            Cookie cookie = new Cookie(COOKIE_NAME, String.valueOf(System.currentTimeMillis() + window.toMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+            response.addCookie(cookie);
+        }
+        if (!writes && !wroteRecently(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        ReplicaDataSource.stickToPrimary();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaDataSource.unstick();
+        }
+    }
+
+    private boolean wroteRecently(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null || !window.isPositive()) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    long until = Long.parseLong(cookie.getValue());
+                    // The value comes from the client, so it cannot extend the window
+                    return until > now && until <= now + window.toMillis();
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,144 @@
+package com.moviehub.configuration;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out connections to read replicas in round-robin order, skipping replicas that are down.
+ * A replica is taken out of the rotation when it fails to give a connection and put back once a health
+ * check reaches it again. Without a healthy replica, or while the current thread sticks to the primary
+ * for read-your-writes, connections come from the primary.
+ */
+@Log4j2
+public class ReplicaDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final ThreadLocal<Boolean> STICK_TO_PRIMARY = new ThreadLocal<>();
+
+    private final DataSource primary;
+
+    private final List<Replica> replicas;
+
+    private final int validationTimeoutSeconds;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param primary                  used when no replica is healthy
+     * @param replicas                 the replicas, named in the order given for logging
+     * @param validationTimeoutSeconds how long a health check waits for a replica to answer
+     */
+    public ReplicaDataSource(DataSource primary, List<DataSource> replicas, int validationTimeoutSeconds) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    /**
+     * Sends the current thread's reads to the primary until {@link #unstick()}
+     */
+    public static void stickToPrimary() {
+        STICK_TO_PRIMARY.set(Boolean.TRUE);
+    }
+
+    public static void unstick() {
+        STICK_TO_PRIMARY.remove();
+    }
+
+    public static boolean isStuckToPrimary() {
+        return Boolean.TRUE.equals(STICK_TO_PRIMARY.get());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connect(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connect(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    /**
+     * @return number of replicas currently in the rotation
+     */
+    public int healthyReplicas() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    /**
+     * Checks every replica, taking unreachable ones out of the rotation and putting recovered ones back
+     */
+    @Scheduled(fixedDelayString = "${datasource.replicas.health-check-interval:10000}")
+    public void checkHealth() {
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(i);
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(validationTimeoutSeconds);
+            } catch (SQLException e) {
+                healthy = false;
+            }
+            if (healthy && !replica.healthy) {
+                log.info("Replica " + (i + 1) + " is reachable again, adding it back to the rotation");
+            } else if (!healthy && replica.healthy) {
+                log.warn("Replica " + (i + 1) + " failed its health check, taking it out of the rotation");
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private Connection connect(ConnectionSource source) throws SQLException {
+        if (isStuckToPrimary() || replicas.isEmpty()) {
+            return source.connect(primary);
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (start + i) % replicas.size();
+            Replica replica = replicas.get(index);
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                return source.connect(replica.dataSource);
+            } catch (SQLException e) {
+                // Retried on the next replica; the health check puts it back once it answers again
+                replica.healthy = false;
+                log.warn("Replica " + (index + 1) + " is unreachable, taking it out of the rotation: " + e.getMessage());
+            }
+        }
+        return source.connect(primary);
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+
+        Connection connect(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Replica {
+
+        private final DataSource dataSource;
+
+        private volatile boolean healthy = true;
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -1,75 +1,125 @@
 package com.moviehub.controller;
 
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.moviehub.dto.IndexReconciliationResult;
+import com.moviehub.dto.LayoutMigrationResult;
+import com.moviehub.dto.StoredFileInfo;
+import com.moviehub.dto.UploadJobResponse;
+import com.moviehub.exception.FileTooLargeException;
+import com.moviehub.exception.InvalidCursorException;
+import com.moviehub.service.DownloadBandwidthLimiter;
 import com.moviehub.service.FileService;
+import com.moviehub.service.FileTransferMetrics;
+import com.moviehub.service.PosterVariantService;
+import com.moviehub.service.UploadJobService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/file/")
 @RequiredArgsConstructor
 public class FileController {
 
+    /**
+     * Room for boundaries and part headers on top of the file itself
+     */
+    private static final long MAX_MULTIPART_OVERHEAD = 64 * 1024;
+
+    private static final int MAX_LIST_LIMIT = 10_000;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Request attributes through which Tomcat's connector offers, and is handed, a sendfile transfer
+     */
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
 
     private final FileService fileService;
 
+    private final PosterVariantService posterVariantService;
+
+    private final FileTransferMetrics fileTransferMetrics;
+
+    private final UploadJobService uploadJobService;
+
+    private final DownloadBandwidthLimiter downloadBandwidthLimiter;
+
 
     @Value("${file.upload.path}")
     private String uploadPath;
 
+    @Value("${project.poster}")
+    private String posterPath;
+
     @Value("${file.allowed.extensions}")
     private String allowedExtensions;
 
     @Value("${file.max.size:524288000}") // 500MB default for video support
     private long maxFileSize;
 
+    /**
+     * Smallest full file or single range handed to the connector's sendfile; smaller ones are written directly
+     */
+    @Value("${file.download.sendfile.min-size:48KB}")
+    private DataSize sendfileMinSize = DataSize.ofKilobytes(48);
+
     /**
      * Upload a single file
      */
     @PostMapping("/upload")
     public ResponseEntity<Map<String, String>> uploadFile(@RequestPart("file") MultipartFile file) {
         try {
-            List<String> allowedExtList = Arrays.asList(allowedExtensions.split(","));
-
-            // Validate file
-            if (file.isEmpty()) {
-                return ResponseEntity
-                        .badRequest()
-                        .body(createResponse("error", "File is empty"));
-            }
-
-            // Check file size
-            if (file.getSize() > maxFileSize) {
-                return ResponseEntity
-                        .badRequest()
-                        .body(createResponse("error",
-                                "File size exceeds limit of " + fileService.getReadableFileSize(file)));
-            }
-
-            // Validate file type
-            if (!fileService.isValidFileType(file, allowedExtList)) {
+            String error = validateUpload(file);
+            if (error != null) {
                 return ResponseEntity
                         .badRequest()
-                        .body(createResponse("error",
-                                "Invalid file type. Allowed types: " + allowedExtensions));
+                        .body(createResponse("error", error));
             }
 
+            long start = System.nanoTime();
             String fileName = fileService.uploadFile(uploadPath, file);
+            fileTransferMetrics.recordUpload(file.getSize(), System.nanoTime() - start);
 
             return ResponseEntity
                     .ok()
@@ -83,19 +133,142 @@ public class FileController {
     }
 
     /**
-     * Download a file
+     * Upload a single file by streaming the multipart body straight to its destination. Unlike /upload the
+     * body is not spooled to a temp file first, so each byte is written once; the first bytes are checked
+     * against the file's extension and the upload is cut off as soon as it passes file.max.size.
+     */
+    @PostMapping(value = "/upload/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, String>> uploadFileStream(HttpServletRequest request) {
+        // A body announced as too large is refused before any of it is read
+        if (request.getContentLengthLong() > maxFileSize + MAX_MULTIPART_OVERHEAD) {
+            throw new FileTooLargeException("File size exceeds limit of " + maxFileSize + " bytes");
+        }
+        try {
+            MultipartStream multipart = MultipartStream.open(request.getContentType(), request.getInputStream());
+            MultipartStream.Part part;
+            while ((part = multipart.nextPart()) != null) {
+                if (!"file".equals(part.name()) || part.fileName() == null) {
+                    continue;
+                }
+                String extension = fileService.getFileExtension(part.fileName()).toLowerCase();
+                if (!Arrays.asList(allowedExtensions.split(",")).contains(extension)) {
+                    return ResponseEntity
+                            .badRequest()
+                            .body(createResponse("error", "Invalid file type. Allowed types: " + allowedExtensions));
+                }
+
+                long start = System.nanoTime();
+                String fileName = fileService.storeStream(uploadPath, part.content(), part.fileName(), maxFileSize);
+                fileTransferMetrics.recordUpload(Files.size(fileService.getFilePath(uploadPath, fileName)),
+                        System.nanoTime() - start);
+
+                return ResponseEntity
+                        .ok()
+                        .body(createResponse("fileName", fileName));
+            }
+            return ResponseEntity
+                    .badRequest()
+                    .body(createResponse("error", "The request has no file part"));
+
+        } catch (IOException e) {
+            return ResponseEntity
+                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createResponse("error", "Failed to upload file: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Upload a single file and store it in the background. The file is only staged before the
+     * 202 response; its progress is reported by {@code GET /file/jobs/{jobId}}.
+     * When the processing queue is full the upload is refused with 503 and Retry-After.
+     */
+    @PostMapping("/upload/async")
+    public ResponseEntity<?> uploadFileAsync(@RequestPart("file") MultipartFile file) throws IOException {
+        String error = validateUpload(file);
+        if (error != null) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(createResponse("error", error));
+        }
+
+        UploadJobResponse job = uploadJobService.submitFile(uploadPath, file);
+        return ResponseEntity
+                .accepted()
+                .location(URI.create("/file/jobs/" + job.jobId()))
+                .body(job);
+    }
+
+    /**
+     * Report the progress of an upload accepted with 202
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<UploadJobResponse> getUploadJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(uploadJobService.getJob(jobId));
+    }
+
+    /**
+     * Download a file, honouring Range and If-Range so players can seek and clients can resume.
+     * Movie posters can be requested as a resized variant, e.g. {@code ?variant=thumb}; variants are
+     * looked up in the poster directory, where posters and their variants are stored.
+     * Without bandwidth limits, full files and single ranges are handed to the connector's sendfile: the kernel
+     * copies them from the file to the socket, and no thread waits for the client. Otherwise, and for
+     * multipart ranges, the body is written by the async executor within the configured bandwidth limits.
      */
     @GetMapping("/download/{fileName}")
-    public ResponseEntity<InputStreamResource> downloadFile(@PathVariable String fileName) {
+    public ResponseEntity<StreamingResponseBody> downloadFile(@PathVariable String fileName,
+                                                              @RequestParam(required = false) String variant,
+                                                              @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                                                              @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+                                                              WebRequest request,
+                                                              HttpServletRequest servletRequest) {
         try {
-            InputStream resource = fileService.getResourceFile(uploadPath, fileName);
-            String contentType = determineContentType(fileName);
+            String client = servletRequest.getRemoteAddr();
+            Path file = variant == null
+                    ? fileService.getFilePath(uploadPath, fileName)
+                    : posterVariantService.getVariant(posterPath, fileName, variant);
+            long length = Files.size(file);
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            String eTag = fileETag(variant == null ? fileName : null, file, length, lastModified);
+
+            // checkNotModified writes the ETag and Last-Modified headers, and the 304 status on a match
+            if (request.checkNotModified(eTag, lastModified)) {
+                return null;
+            }
+            MediaType contentType = MediaType.parseMediaType(determineContentType(fileName));
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+            headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + fileName);
+
+            if (range == null || !isIfRangeSatisfied(ifRange, eTag, lastModified)) {
+                headers.setContentType(contentType);
+                headers.setContentLength(length);
+                if (sendfile(servletRequest, file, 0, length)) {
+                    return new ResponseEntity<>(headers, HttpStatus.OK);
+                }
+                return new ResponseEntity<>(metered(out -> fileService.transferRange(file, 0, length, out), client),
+                        headers, HttpStatus.OK);
+            }
 
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment;filename=" + fileName)
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .body(new InputStreamResource(resource));
+            List<ByteRegion> regions = resolveRegions(range, length);
+            if (regions.isEmpty()) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+            }
+
+            if (regions.size() == 1) {
+                ByteRegion region = regions.get(0);
+                headers.setContentType(contentType);
+                headers.setContentLength(region.length());
+                headers.set(HttpHeaders.CONTENT_RANGE, region.contentRange(length));
+                if (sendfile(servletRequest, file, region.start(), region.length())) {
+                    return new ResponseEntity<>(headers, HttpStatus.PARTIAL_CONTENT);
+                }
+                return new ResponseEntity<>(metered(out -> fileService.transferRange(file, region.start(), region.length(), out), client),
+                        headers, HttpStatus.PARTIAL_CONTENT);
+            }
+
+            return multipartRanges(file, regions, length, contentType, headers, client);
 
         } catch (IOException e) {
             return ResponseEntity.notFound().build();
@@ -136,18 +309,64 @@ public class FileController {
     }
 
     /**
-     * List all files in upload directory
+     * List the files in the upload directory one page at a time, as {@code {"files":[...],"nextCursor":"..."}}.
+     * Names are written in name order as they are read from the file index; nextCursor is null on the last page.
      */
     @GetMapping("/list")
-    public ResponseEntity<List<String>> listFiles() {
-        try {
-            List<String> files = fileService.listFiles(uploadPath);
-            return ResponseEntity.ok(files);
-        } catch (IOException e) {
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .build();
+    public ResponseEntity<StreamingResponseBody> listFiles(@RequestParam(required = false) String cursor,
+                                                           @RequestParam(defaultValue = "1000") int limit) {
+        String after = cursor == null ? null : decodeListCursor(cursor);
+        int pageSize = Math.max(1, Math.min(limit, MAX_LIST_LIMIT));
+
+        StreamingResponseBody body = out -> {
+            try (Stream<String> files = fileService.streamFiles(uploadPath, after);
+                 JsonGenerator json = JSON_FACTORY.createGenerator(out)) {
+                Iterator<String> names = files.iterator();
+                String last = null;
+                json.writeStartObject();
+                json.writeArrayFieldStart("files");
+                for (int i = 0; i < pageSize && names.hasNext(); i++) {
+                    last = names.next();
+                    json.writeString(last);
+                }
+                json.writeEndArray();
+                json.writeStringField("nextCursor", names.hasNext() ? encodeListCursor(last) : null);
+                json.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Move files stored before file.layout.levels was raised into their shard directories.
+     * Covers the upload directory, the poster directory and the poster variants; safe to repeat.
+     */
+    @PostMapping("/layout/migrate")
+    public ResponseEntity<List<LayoutMigrationResult>> migrateLayout() throws IOException {
+        List<LayoutMigrationResult> results = new ArrayList<>();
+        results.add(fileService.migrateLayout(uploadPath));
+        results.add(fileService.migrateLayout(posterPath));
+        for (String variantDirectory : posterVariantService.variantDirectories(posterPath)) {
+            results.add(fileService.migrateLayout(variantDirectory));
         }
+        return ResponseEntity.ok(results);
+    }
+
+    /**
+     * Reconcile the file index of the upload and poster directories with the files on disk.
+     * Runs at startup; only needed again if files were changed on disk behind the application's back.
+     */
+    @PostMapping("/index/reconcile")
+    public ResponseEntity<List<IndexReconciliationResult>> reconcileIndex() throws IOException {
+        return ResponseEntity.ok(List.of(fileService.reconcileIndex(uploadPath), fileService.reconcileIndex(posterPath)));
+    }
+
+    /**
+     * Size, content type, digest, modification time and reference count of a file, from the file index
+     */
+    @GetMapping("/info/{fileName}")
+    public ResponseEntity<StoredFileInfo> getFileInfo(@PathVariable String fileName) {
+        return ResponseEntity.ok(fileService.getFileInfo(uploadPath, fileName));
     }
 
     /**
@@ -164,43 +383,206 @@ public class FileController {
         return ResponseEntity.ok(response);
     }
 
+    private static String encodeListCursor(String lastFileName) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastFileName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeListCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+
     private Map<String, String> createResponse(String key, String value) {
         Map<String, String> response = new HashMap<>();
         response.put(key, value);
         return response;
     }
 
-    private String determineContentType(String fileName) {
-        String ext = fileService.getFileExtension(fileName).toLowerCase();
-        switch (ext) {
-            // Existing types
-            case "jpg":
-            case "jpeg":
-                return "image/jpeg";
-            case "png":
-                return "image/png";
-            case "gif":
-                return "image/gif";
-            // Added video types
-            case "mp4":
-                return "video/mp4";
-            case "avi":
-                return "video/x-msvideo";
-            case "wmv":
-                return "video/x-ms-wmv";
-            case "mov":
-                return "video/quicktime";
-            case "mkv":
-                return "video/x-matroska";
-            case "flv":
-                return "video/x-flv";
-            case "webm":
-                return "video/webm";
-            case "3gp":
-                return "video/3gpp";
-            default:
-                return "application/octet-stream";
+    /**
+     * @return why the file cannot be uploaded, or null if it can
+     */
+    private String validateUpload(MultipartFile file) {
+        if (file.isEmpty()) {
+            return "File is empty";
+        }
+        if (file.getSize() > maxFileSize) {
+            return "File size exceeds limit of " + fileService.getReadableFileSize(file);
+        }
+        if (!fileService.isValidFileType(file, Arrays.asList(allowedExtensions.split(",")))) {
+            return "Invalid file type. Allowed types: " + allowedExtensions;
+        }
+        return null;
+    }
+
+    /**
+     * Builds a multipart/byteranges response; every part header is rendered up front so the
+     * exact Content-Length is known before the first byte of the file is sent.
+     */
+    private ResponseEntity<StreamingResponseBody> multipartRanges(Path file, List<ByteRegion> regions, long length,
+                                                                  MediaType contentType, HttpHeaders headers, String client) {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>(regions.size());
+        long contentLength = 0;
+
+        for (ByteRegion region : regions) {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + region.contentRange(length) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + region.length();
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        headers.setContentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary));
+        headers.setContentLength(contentLength);
+
+        StreamingResponseBody body = out -> {
+            for (int i = 0; i < regions.size(); i++) {
+                ByteRegion region = regions.get(i);
+                out.write(partHeaders.get(i));
+                fileService.transferRange(file, region.start(), region.length(), out);
+            }
+            out.write(closing);
+        };
+        return new ResponseEntity<>(metered(body, client), headers, HttpStatus.PARTIAL_CONTENT);
+    }
+
+    /**
+     * Hands a byte range of a file to Tomcat's sendfile, which sends it once the response headers are out,
+     * in the same way its DefaultServlet does. The response must then carry no body of its own.
+     *
+     * @return whether the connector sends the range; false without sendfile support (e.g. over TLS), for HEAD
+     * requests, while bandwidth limits apply, or for ranges below file.download.sendfile.min-size
+     */
+    private boolean sendfile(HttpServletRequest request, Path file, long start, long count) {
+        if (count < sendfileMinSize.toBytes() || downloadBandwidthLimiter.isEnabled()
+                || !HttpMethod.GET.matches(request.getMethod())
+                || !Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            return false;
+        }
+        request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+        request.setAttribute(SENDFILE_START, start);
+        request.setAttribute(SENDFILE_END, start + count);
+        // The connector reports neither when it is done nor how much the client took
+        fileTransferMetrics.recordDownload(count, 0);
+        return true;
+    }
+
+    /**
+     * Shapes a download body to the bandwidth limits of the client, and records the bytes actually
+     * written and how long writing them took
+     */
+    private StreamingResponseBody metered(StreamingResponseBody body, String client) {
+        return out -> {
+            CountingOutputStream counting = new CountingOutputStream(out);
+            long start = System.nanoTime();
+            try {
+                body.writeTo(downloadBandwidthLimiter.shape(counting, client));
+            } finally {
+                fileTransferMetrics.recordDownload(counting.count, System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * Resolves a Range header against the file length.
+     * Returns an empty list when the header is malformed or cannot be satisfied.
+     */
+    private List<ByteRegion> resolveRegions(String range, long length) {
+        List<ByteRegion> regions = new ArrayList<>();
+        try {
+            long total = 0;
+            for (HttpRange httpRange : HttpRange.parseRanges(range)) {
+                long start = httpRange.getRangeStart(length);
+                long end = httpRange.getRangeEnd(length);
+                if (start > end) {
+                    return List.of();
+                }
+                total += end - start + 1;
+                regions.add(new ByteRegion(start, end - start + 1));
+            }
+            // Same guard Spring applies to resource regions: overlapping ranges must not amplify the response
+            if (total > length) {
+                return List.of();
+            }
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+        return regions;
+    }
+
+    /**
+     * Strong ETag built from the size, modification time and content digest of the file when the digest is
+     * known without reading the file; otherwise, e.g. for variants, a weak ETag of the size and modification
+     * time. A download never waits for its file to be hashed.
+     *
+     * @param fileName name of the stored file, or null if the file is not in the file index
+     */
+    private String fileETag(String fileName, Path file, long length, long lastModified) throws IOException {
+        String validator = Long.toHexString(length) + "-" + Long.toHexString(lastModified);
+        String digest = fileName == null ? null : fileService.findFileDigest(uploadPath, fileName, file);
+        return digest == null
+                ? "W/\"" + validator + "\""
+                : "\"" + validator + "-" + digest.substring(0, 16) + "\"";
+    }
+
+    /**
+     * If-Range only allows a partial response while the representation is unchanged;
+     * anything that doesn't match the current ETag or Last-Modified falls back to the full file.
+     */
+    private boolean isIfRangeSatisfied(String ifRange, String eTag, long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // If-Range requires a strong comparison, so weak tags never match
+            return !ifRange.startsWith("W/") && ifRange.equals(eTag);
         }
+        try {
+            long date = ZonedDateTime.parse(ifRange.trim(), DateTimeFormatter.RFC_1123_DATE_TIME)
+                    .toInstant().toEpochMilli();
+            return date / 1000 == lastModified / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private record ByteRegion(long start, long length) {
+
+        String contentRange(long total) {
+            return "bytes " + start + "-" + (start + length - 1) + "/" + total;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            // FilterOutputStream would write the array one byte at a time
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    String determineContentType(String fileName) {
+        return fileService.getContentType(fileName);
     }
 
 
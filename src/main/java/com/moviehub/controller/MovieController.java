@@ -1,20 +1,34 @@
 package com.moviehub.controller;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.moviehub.configuration.AppConstants;
+import com.moviehub.dto.MovieCursorPageResponse;
 import com.moviehub.dto.MovieDTO;
+import com.moviehub.dto.MovieImportResult;
 import com.moviehub.dto.MoviePageResponse;
+import com.moviehub.dto.MovieSearchResult;
+import com.moviehub.dto.MovieVersion;
+import com.moviehub.dto.UploadJobResponse;
 import com.moviehub.exception.EmptyFileException;
+import com.moviehub.search.CoStar;
+import com.moviehub.service.MovieImportService;
 import com.moviehub.service.MovieService;
+import com.moviehub.service.UploadJobService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -22,8 +36,16 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MovieController {
 
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+
     private final MovieService movieService;
 
+    private final MovieImportService movieImportService;
+
+    private final UploadJobService uploadJobService;
+
+    private final ObjectMapper objectMapper;
+
     @PostMapping("/add-movie")
     public ResponseEntity<MovieDTO> addMovieHandler(@RequestPart String movieDTO, @RequestPart MultipartFile file) throws IOException {
 
@@ -35,22 +57,112 @@ public class MovieController {
         return new ResponseEntity<>(movieService.addMovie(dto, file), HttpStatus.CREATED);
     }
 
-    private MovieDTO convertToMovieDTO(String movieDTOObj) throws JsonProcessingException {
+    /**
+     * Stage the poster and save the movie in the background; the 202 response points at the job's
+     * status, which holds the saved movie once it completes. A full queue is answered with 503 and Retry-After.
+     */
+    @PostMapping("/add-movie/async")
+    public ResponseEntity<UploadJobResponse> addMovieAsyncHandler(@RequestPart String movieDTO, @RequestPart MultipartFile file) throws IOException {
+
+        if (file.isEmpty()) {
+            throw new EmptyFileException("File is empty! Please select a file!");
+        }
+        MovieDTO dto = convertToMovieDTO(movieDTO);
 
-        ObjectMapper objectMapper = new ObjectMapper();
+        UploadJobResponse job = uploadJobService.submitMovie(dto, file);
+        return ResponseEntity.accepted().location(URI.create("/file/jobs/" + job.jobId())).body(job);
+    }
+
+    /**
+     * Bulk import from a CSV or JSONL file, with an optional ZIP archive of the posters the rows name.
+     * Rows that fail are listed in the response; the others are imported.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<MovieImportResult> importMoviesHandler(@RequestPart MultipartFile file,
+                                                                 @RequestPart(required = false) MultipartFile posters) throws IOException {
+        return ResponseEntity.ok(movieImportService.importMovies(file, posters));
+    }
+
+    MovieDTO convertToMovieDTO(String movieDTOObj) throws JsonProcessingException {
+        // The shared mapper caches its deserializers; a new ObjectMapper per request rebuilt them every time
         return objectMapper.readValue(movieDTOObj, MovieDTO.class);
     }
 
+    /**
+     * Full-text search over title, director, studio and cast, e.g. {@code ?q=nolan bale&mode=and}
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<MovieSearchResult>> searchMoviesHandler(@RequestParam String q,
+                                                                       @RequestParam(defaultValue = "and") String mode,
+                                                                       @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(movieService.searchMovies(q, !mode.equalsIgnoreCase("or"), limit));
+    }
+
+    /**
+     * Movies featuring every given actor, oldest first, e.g. {@code ?name=Christian Bale&name=Heath Ledger}.
+     * A single name gives the actor's filmography.
+     */
+    @GetMapping("/actors/movies")
+    public ResponseEntity<List<MovieDTO>> getMoviesByActorsHandler(@RequestParam("name") List<String> names) {
+        return ResponseEntity.ok(movieService.getMoviesByActors(names));
+    }
+
+    /**
+     * The newest movies by release year, e.g. for the home page
+     */
+    @GetMapping("/latest")
+    public ResponseEntity<List<MovieDTO>> getLatestMoviesHandler(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(movieService.getLatestMovies(limit));
+    }
+
+    @GetMapping("/actors/co-stars")
+    public ResponseEntity<List<CoStar>> getCoStarsHandler(@RequestParam String name,
+                                                          @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(movieService.getCoStars(name, limit));
+    }
+
+    /**
+     * Conditional requests are answered from the movie's version alone; on a match the
+     * response is a 304 set up by checkNotModified and the movie itself is never loaded.
+     */
     @GetMapping("/{movieId}")
-    public ResponseEntity<MovieDTO> getMovieHandler(@PathVariable Long movieId) {
+    public ResponseEntity<MovieDTO> getMovieHandler(@PathVariable Long movieId, WebRequest request) {
+        MovieVersion version = movieService.getMovieVersion(movieId);
+        if (request.checkNotModified(version.eTag(), version.lastModified())) {
+            return null;
+        }
         return new ResponseEntity<>(movieService.getMovie(movieId), HttpStatus.OK);
     }
 
     @GetMapping("/all")
-    public ResponseEntity<List<MovieDTO>> getAllMoviesHandler() {
+    public ResponseEntity<List<MovieDTO>> getAllMoviesHandler(WebRequest request) {
+        if (request.checkNotModified(movieService.getCatalogVersion().eTag("all"))) {
+            return null;
+        }
         return new ResponseEntity<>(movieService.getAllMovies(), HttpStatus.OK);
     }
 
+    /**
+     * Newline-delimited JSON export of the whole catalog. Movies are written and flushed batch by batch
+     * as they are read, so neither the server nor the client has to hold the full catalog in memory.
+     */
+    @GetMapping(value = "/all", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAllMoviesHandler(WebRequest request) {
+        if (request.checkNotModified(movieService.getCatalogVersion().eTag("ndjson"))) {
+            return null;
+        }
+
+        ObjectWriter writer = objectMapper.writerFor(MovieDTO.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        StreamingResponseBody body = out -> movieService.exportMovies(batch -> {
+            for (MovieDTO movie : batch) {
+                writer.writeValue(out, movie);
+                out.write('\n');
+            }
+            out.flush();
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON_VALUE)).body(body);
+    }
+
 
     @PutMapping("/update/{movieId}")
     public ResponseEntity<MovieDTO> updateMovieHandler(@PathVariable Long movieId, @RequestPart String movieDTOObj, @RequestPart MultipartFile file) throws IOException {
@@ -69,8 +181,12 @@ public class MovieController {
 
     @GetMapping("/allMoviesPage")
     public ResponseEntity<MoviePageResponse> getMovieWithPagination(@RequestParam(defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
-                                                                    @RequestParam(defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize) {
+                                                                    @RequestParam(defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+                                                                    WebRequest request) {
 
+        if (request.checkNotModified(movieService.getCatalogVersion().eTag("page-" + pageNumber + "-" + pageSize))) {
+            return null;
+        }
         return ResponseEntity.ok(movieService.getAllMoviesWithPagination(pageNumber, pageSize));
     }
 
@@ -79,10 +195,30 @@ public class MovieController {
     public ResponseEntity<MoviePageResponse> getMovieWithPaginationAndSorting(@RequestParam(defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
                                                                               @RequestParam(defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
                                                                               @RequestParam(defaultValue = AppConstants.SORT_BY, required = false) String sortBy,
-                                                                              @RequestParam(defaultValue = AppConstants.SORT_DER, required = false) String direction) {
+                                                                              @RequestParam(defaultValue = AppConstants.SORT_DER, required = false) String direction,
+                                                                              WebRequest request) {
 
+        String view = "page-" + pageNumber + "-" + pageSize + "-" + sortBy + "-" + direction.toLowerCase();
+        if (request.checkNotModified(movieService.getCatalogVersion().eTag(view))) {
+            return null;
+        }
         return ResponseEntity.ok(movieService.getAllMoviesWithPaginationAndSorting(pageNumber, pageSize, sortBy, direction));
     }
 
 
+    /**
+     * Keyset pagination: pass the returned nextCursor to get the following page. The cursor carries the
+     * sort order, so sortBy and direction only apply to the first page.
+     */
+    @GetMapping("/allMoviesCursor")
+    public ResponseEntity<MovieCursorPageResponse> getMoviesWithCursor(@RequestParam(required = false) String cursor,
+                                                                       @RequestParam(defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+                                                                       @RequestParam(defaultValue = AppConstants.SORT_BY, required = false) String sortBy,
+                                                                       @RequestParam(defaultValue = AppConstants.SORT_DER, required = false) String direction,
+                                                                       @RequestParam(defaultValue = "false") boolean includeTotal) {
+
+        return ResponseEntity.ok(movieService.getAllMoviesWithCursor(cursor, pageSize, sortBy, direction, includeTotal));
+    }
+
+
 }
@@ -0,0 +1,266 @@
+package com.moviehub.controller;
+
+import com.moviehub.exception.InvalidMultipartException;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Reads a multipart/form-data body part by part straight from the request stream. Only one buffer
+ * of the body is held in memory and nothing is spooled to disk; each part's content is an
+ * InputStream that ends at the next boundary, and moving to the next part skips what is left of it.
+ */
+final class MultipartStream {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_HEADER_SIZE = 8 * 1024;
+
+    private final InputStream in;
+
+    /**
+     * CRLF followed by "--" and the boundary
+     */
+    private final byte[] delimiter;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    /**
+     * Unread bytes are buffer[head, tail)
+     */
+    private int head;
+
+    private int tail;
+
+    /**
+     * Bytes before bodyEnd belong to the current part; if atDelimiter, the delimiter starts at bodyEnd
+     */
+    private int bodyEnd;
+
+    private boolean atDelimiter;
+
+    private PartInputStream current;
+
+    private boolean finished;
+
+    private MultipartStream(InputStream in, String boundary) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        // The first boundary has no CRLF in front of it; pretend it has, so the preamble is read like a part
+        buffer[tail++] = '\r';
+        buffer[tail++] = '\n';
+        startPart();
+    }
+
+    /**
+     * @param contentType Content-Type header of the request
+     * @param in          the request body
+     * @throws InvalidMultipartException if the request is not multipart/form-data with a boundary
+     */
+    static MultipartStream open(String contentType, InputStream in) {
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            throw new InvalidMultipartException("Invalid Content-Type: " + contentType);
+        }
+        String boundary = mediaType.getParameter("boundary");
+        if (!MediaType.MULTIPART_FORM_DATA.includes(mediaType) || boundary == null) {
+            throw new InvalidMultipartException("Expected multipart/form-data with a boundary");
+        }
+        if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+            boundary = boundary.substring(1, boundary.length() - 1);
+        }
+        return new MultipartStream(in, boundary);
+    }
+
+    /**
+     * Skips the rest of the current part and reads the headers of the next one
+     *
+     * @return the next part, or null after the closing boundary
+     * @throws IOException if reading fails or the body ends early
+     */
+    Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        current.transferTo(OutputStream.nullOutputStream());
+
+        // The delimiter is followed by "--" on the closing boundary, otherwise by optional padding and CRLF
+        if (!fill(2)) {
+            throw new EOFException("Multipart body ended after a boundary");
+        }
+        if (buffer[head] == '-' && buffer[head + 1] == '-') {
+            finished = true;
+            return null;
+        }
+        String rest = readLine();
+        if (!rest.isBlank()) {
+            throw new InvalidMultipartException("Malformed multipart boundary");
+        }
+
+        String name = null;
+        String fileName = null;
+        String contentType = null;
+        int headerSize = 0;
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            headerSize += line.length();
+            if (headerSize > MAX_HEADER_SIZE) {
+                throw new InvalidMultipartException("Multipart headers are too large");
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                throw new InvalidMultipartException("Malformed multipart header: " + line);
+            }
+            String header = line.substring(0, colon).strip().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).strip();
+            if (header.equals(HttpHeaders.CONTENT_DISPOSITION.toLowerCase(Locale.ROOT))) {
+                ContentDisposition disposition = ContentDisposition.parse(value);
+                name = disposition.getName();
+                fileName = disposition.getFilename();
+            } else if (header.equals(HttpHeaders.CONTENT_TYPE.toLowerCase(Locale.ROOT))) {
+                contentType = value;
+            }
+        }
+        startPart();
+        return new Part(name, fileName, contentType, current);
+    }
+
+    private void startPart() {
+        bodyEnd = head;
+        atDelimiter = false;
+        scan();
+        current = new PartInputStream();
+    }
+
+    /**
+     * Moves bodyEnd over the buffered bytes that cannot be the start of a delimiter
+     */
+    private void scan() {
+        int last = tail - delimiter.length;
+        for (int i = bodyEnd; i <= last; i++) {
+            if (buffer[i] == '\r' && isDelimiterAt(i)) {
+                bodyEnd = i;
+                atDelimiter = true;
+                return;
+            }
+        }
+        bodyEnd = Math.max(bodyEnd, last + 1);
+    }
+
+    private boolean isDelimiterAt(int index) {
+        for (int i = 1; i < delimiter.length; i++) {
+            if (buffer[index + i] != delimiter[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a CRLF terminated header line
+     */
+    private String readLine() throws IOException {
+        // Bytes after head already searched for a line end, kept relative as readMore moves them
+        int searched = 0;
+        while (true) {
+            for (int i = head + searched; i + 1 < tail; i++) {
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                    String line = new String(buffer, head, i - head, StandardCharsets.UTF_8);
+                    head = i + 2;
+                    return line;
+                }
+            }
+            searched = Math.max(0, tail - head - 1);
+            if (tail - head >= MAX_HEADER_SIZE) {
+                throw new InvalidMultipartException("Multipart headers are too large");
+            }
+            if (!readMore()) {
+                throw new EOFException("Multipart body ended inside the part headers");
+            }
+        }
+    }
+
+    /**
+     * @return false if the body ended before count bytes were buffered
+     */
+    private boolean fill(int count) throws IOException {
+        while (tail - head < count) {
+            if (!readMore()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the unread bytes to the front of the buffer and reads more behind them
+     *
+     * @return false at the end of the body
+     */
+    private boolean readMore() throws IOException {
+        if (head > 0) {
+            System.arraycopy(buffer, head, buffer, 0, tail - head);
+            tail -= head;
+            bodyEnd -= head;
+            head = 0;
+        }
+        int read = in.read(buffer, tail, buffer.length - tail);
+        if (read == -1) {
+            return false;
+        }
+        tail += read;
+        return true;
+    }
+
+    /**
+     * A part of the body; content must be read before moving to the next part
+     */
+    record Part(String name, String fileName, String contentType, InputStream content) {
+    }
+
+    private final class PartInputStream extends InputStream {
+
+        private boolean ended;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (ended) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (head == bodyEnd) {
+                if (atDelimiter) {
+                    head += delimiter.length;
+                    ended = true;
+                    return -1;
+                }
+                if (!readMore()) {
+                    throw new EOFException("Multipart body ended inside a part");
+                }
+                scan();
+            }
+            int count = Math.min(len, bodyEnd - head);
+            System.arraycopy(buffer, head, b, off, count);
+            head += count;
+            return count;
+        }
+    }
+}
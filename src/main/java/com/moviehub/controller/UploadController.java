@@ -0,0 +1,82 @@
+package com.moviehub.controller;
+
+
+import com.moviehub.dto.UploadInitRequest;
+import com.moviehub.dto.UploadStatusResponse;
+import com.moviehub.service.ChunkedUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resumable upload protocol: open a session, PUT the chunks (in any order, possibly in
+ * parallel), poll the status to find missing chunks after a failure, then complete.
+ */
+@RestController
+@RequestMapping("/file/uploads")
+@RequiredArgsConstructor
+public class UploadController {
+
+    public static final String CHUNK_CHECKSUM_HEADER = "X-Chunk-Checksum";
+
+    private final ChunkedUploadService chunkedUploadService;
+
+    /**
+     * Open an upload session
+     */
+    @PostMapping
+    public ResponseEntity<UploadStatusResponse> initUpload(@Valid @RequestBody UploadInitRequest request) throws IOException {
+        return new ResponseEntity<>(chunkedUploadService.initUpload(request), HttpStatus.CREATED);
+    }
+
+    /**
+     * Upload one chunk; the raw request body is written straight into the staging file
+     */
+    @PutMapping("/{uploadId}/chunks/{chunkIndex}")
+    public ResponseEntity<UploadStatusResponse> uploadChunk(@PathVariable String uploadId,
+                                                            @PathVariable int chunkIndex,
+                                                            @RequestParam long offset,
+                                                            @RequestHeader(CHUNK_CHECKSUM_HEADER) String checksum,
+                                                            HttpServletRequest request) throws IOException {
+        try (InputStream content = request.getInputStream()) {
+            return ResponseEntity.ok(chunkedUploadService.writeChunk(uploadId, chunkIndex, offset, checksum, content));
+        }
+    }
+
+    /**
+     * Report which chunks have been received
+     */
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadStatusResponse> getStatus(@PathVariable String uploadId) {
+        return ResponseEntity.ok(chunkedUploadService.getStatus(uploadId));
+    }
+
+    /**
+     * Move the assembled file into the upload directory
+     */
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<Map<String, String>> completeUpload(@PathVariable String uploadId) throws IOException {
+        String fileName = chunkedUploadService.completeUpload(uploadId);
+
+        Map<String, String> response = new HashMap<>();
+        response.put("fileName", fileName);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Abort the session and discard the received chunks
+     */
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> abortUpload(@PathVariable String uploadId) throws IOException {
+        chunkedUploadService.abortUpload(uploadId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.moviehub.dto;
+
+import java.time.Instant;
+
+/**
+ * Aggregate version of the whole catalog, computed with a single aggregate query.
+ * Any insert raises the max id, any delete lowers the count and any update raises the version sum,
+ * so the combination changes whenever the catalog does.
+ *
+ * @param count       number of movies
+ * @param maxId       highest movie id
+ * @param versionSum  sum of all movie versions
+ * @param lastUpdated most recent update time
+ */
+public record CatalogVersion(Long count, Long maxId, Long versionSum, Instant lastUpdated) {
+
+    /**
+     * Builds a strong ETag for a view of the catalog
+     *
+     * @param view distinguishes representations of the same catalog state, e.g. a page and its sort order
+     * @return the ETag
+     */
+    public String eTag(String view) {
+        return "\"catalog-" + count + "-" + (maxId == null ? 0 : maxId)
+                + "-" + (versionSum == null ? 0 : versionSum)
+                + "-" + (lastUpdated == null ? 0 : lastUpdated.toEpochMilli())
+                + "-" + view.replaceAll("[^A-Za-z0-9_.-]", "_") + "\"";
+    }
+}
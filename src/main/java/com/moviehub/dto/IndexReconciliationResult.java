@@ -0,0 +1,13 @@
+package com.moviehub.dto;
+
+/**
+ * Outcome of bringing the file index of a directory in line with the files on disk.
+ *
+ * @param directory the reconciled directory
+ * @param added     files on disk that were missing from the index
+ * @param updated   indexed files whose size or modification time had changed
+ * @param removed   index entries whose file no longer exists
+ * @param failed    files that could not be read or indexed
+ */
+public record IndexReconciliationResult(String directory, long added, long updated, long removed, long failed) {
+}
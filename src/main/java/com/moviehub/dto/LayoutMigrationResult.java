@@ -0,0 +1,12 @@
+package com.moviehub.dto;
+
+/**
+ * Outcome of moving the files of a flat directory into the configured layout.
+ *
+ * @param directory the migrated directory
+ * @param moved     files moved to their shard directory
+ * @param skipped   files left in place because their shard already holds a file of the same name
+ * @param failed    files that could not be moved
+ */
+public record LayoutMigrationResult(String directory, long moved, long skipped, long failed) {
+}
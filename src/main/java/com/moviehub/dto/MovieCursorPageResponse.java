@@ -0,0 +1,16 @@
+package com.moviehub.dto;
+
+import java.util.List;
+
+/**
+ * A page of movies fetched with keyset pagination.
+ *
+ * @param movieDTOS     the movies of the page
+ * @param pageSize      requested page size
+ * @param nextCursor    opaque token to pass as {@code cursor} for the next page, null on the last page
+ * @param hasNext       whether another page follows
+ * @param totalElements estimated number of movies, only present when requested
+ */
+public record MovieCursorPageResponse(List<MovieDTO> movieDTOS, Integer pageSize, String nextCursor,
+                                      boolean hasNext, Long totalElements) {
+}
@@ -0,0 +1,11 @@
+package com.moviehub.dto;
+
+/**
+ * A row rejected by a bulk import.
+ *
+ * @param row     1-based number of the data row (the line number for JSONL)
+ * @param title   title of the movie, if it could be read
+ * @param message why the row was rejected
+ */
+public record MovieImportError(long row, String title, String message) {
+}
@@ -0,0 +1,17 @@
+package com.moviehub.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import.
+ *
+ * @param totalRows       number of data rows read
+ * @param imported        number of movies inserted
+ * @param failed          number of rows rejected
+ * @param errors          the rejected rows, at most movie.import.max-reported-errors of them
+ * @param errorsTruncated true if more rows failed than are listed in errors
+ * @param durationMillis  time the import took
+ */
+public record MovieImportResult(long totalRows, long imported, long failed, List<MovieImportError> errors,
+                                boolean errorsTruncated, long durationMillis) {
+}
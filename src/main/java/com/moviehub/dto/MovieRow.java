@@ -0,0 +1,17 @@
+package com.moviehub.dto;
+
+/**
+ * One row of a movie joined with its cast, read as a projection without hydrating the entity.
+ * A movie with n actors spans n consecutive rows, a movie without cast one row with a null actor.
+ *
+ * @param movieId     identifier of the movie
+ * @param title       title of the movie
+ * @param director    director of the movie
+ * @param studio      studio of the movie
+ * @param releaseYear release year of the movie
+ * @param poster      poster file name
+ * @param actor       one member of the cast, or null
+ */
+public record MovieRow(Long movieId, String title, String director, String studio, Integer releaseYear,
+                       String poster, String actor) {
+}
@@ -0,0 +1,10 @@
+package com.moviehub.dto;
+
+/**
+ * A movie matching a full-text search.
+ *
+ * @param movie the matching movie
+ * @param score relevance of the match, higher is better
+ */
+public record MovieSearchResult(MovieDTO movie, double score) {
+}
@@ -0,0 +1,27 @@
+package com.moviehub.dto;
+
+import java.time.Instant;
+
+/**
+ * Validators of a single movie, loaded without hydrating the entity.
+ *
+ * @param movieId   identifier of the movie
+ * @param version   optimistic locking version of the movie
+ * @param updatedAt time of the last change
+ */
+public record MovieVersion(Long movieId, Long version, Instant updatedAt) {
+
+    /**
+     * @return strong ETag of the movie representation
+     */
+    public String eTag() {
+        return "\"movie-" + movieId + "-" + version + "\"";
+    }
+
+    /**
+     * @return last modification time in epoch milliseconds, or -1 when unknown
+     */
+    public long lastModified() {
+        return updatedAt == null ? -1 : updatedAt.toEpochMilli();
+    }
+}
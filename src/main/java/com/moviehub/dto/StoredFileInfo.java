@@ -0,0 +1,17 @@
+package com.moviehub.dto;
+
+import java.time.Instant;
+
+/**
+ * Details of a stored file, as recorded in the file index.
+ *
+ * @param name           name the file is stored under
+ * @param size           size in bytes
+ * @param contentType    media type derived from the file extension
+ * @param digest         hex encoded SHA-256 of the content
+ * @param modifiedAt     last modification time of the file
+ * @param referenceCount number of names in the directory holding the same content, this one included
+ */
+public record StoredFileInfo(String name, long size, String contentType, String digest, Instant modifiedAt,
+                             int referenceCount) {
+}
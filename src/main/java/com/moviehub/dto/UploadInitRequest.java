@@ -0,0 +1,17 @@
+package com.moviehub.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Request body used to open a resumable upload session.
+ *
+ * @param fileName  original name of the file being uploaded
+ * @param totalSize total size of the file in bytes
+ * @param chunkSize preferred chunk size in bytes, the server default is used when absent
+ */
+public record UploadInitRequest(@NotBlank(message = "File name is required") String fileName,
+                                @NotNull(message = "Total size is required") @Positive Long totalSize,
+                                @Positive Integer chunkSize) {
+}
@@ -0,0 +1,22 @@
+package com.moviehub.dto;
+
+import java.time.Instant;
+
+/**
+ * State of an upload processed in the background.
+ *
+ * @param jobId        identifier of the job
+ * @param status       stage the job has reached
+ * @param originalName name of the uploaded file
+ * @param size         size of the uploaded file in bytes
+ * @param fileName     stored file name, set once the job has completed
+ * @param movie        the saved movie for movie uploads, set once the job has completed
+ * @param error        reason the job failed
+ * @param submittedAt  when the upload was accepted
+ * @param startedAt    when a worker picked the job up
+ * @param finishedAt   when the job completed or failed
+ */
+public record UploadJobResponse(String jobId, UploadJobStatus status, String originalName, long size,
+                                String fileName, MovieDTO movie, String error,
+                                Instant submittedAt, Instant startedAt, Instant finishedAt) {
+}
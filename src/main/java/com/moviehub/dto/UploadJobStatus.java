@@ -0,0 +1,21 @@
+package com.moviehub.dto;
+
+/**
+ * Stages of an upload processed in the background
+ */
+public enum UploadJobStatus {
+
+    /**
+     * The upload is staged and waiting for a worker
+     */
+    QUEUED,
+
+    /**
+     * A worker is storing the upload
+     */
+    PROCESSING,
+
+    COMPLETED,
+
+    FAILED
+}
@@ -0,0 +1,20 @@
+package com.moviehub.dto;
+
+import java.util.List;
+
+/**
+ * Progress of a resumable upload session.
+ *
+ * @param uploadId       identifier of the session
+ * @param fileName       original name of the file being uploaded
+ * @param totalSize      total size of the file in bytes
+ * @param chunkSize      size of every chunk except possibly the last one
+ * @param totalChunks    number of chunks the file is split into
+ * @param receivedChunks indexes of the chunks already stored and verified
+ * @param bytesReceived  number of verified bytes stored so far
+ * @param complete       true once every chunk has been received
+ */
+public record UploadStatusResponse(String uploadId, String fileName, long totalSize, int chunkSize,
+                                   int totalChunks, List<Integer> receivedChunks, long bytesReceived,
+                                   boolean complete) {
+}
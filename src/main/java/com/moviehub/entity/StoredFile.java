@@ -0,0 +1,69 @@
+package com.moviehub.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Index entry of a file kept by FileService, so existence checks, listings and file details
+ * are answered without touching the file system. Directories and names are compared byte for byte,
+ * as the file system does, not with the case and accent insensitive default collation.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "stored_files",
+        uniqueConstraints = @UniqueConstraint(name = "uk_stored_files_directory_name", columnNames = {"directory", "name"}),
+        indexes = @Index(name = "idx_stored_files_directory_digest", columnList = "directory, digest"))
+public class StoredFile {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stored_files_seq")
+    @SequenceGenerator(name = "stored_files_seq", sequenceName = "stored_files_seq", allocationSize = 50)
+    private Long id;
+
+    /**
+     * Absolute, normalized path of the directory the file is stored in
+     */
+    @Column(nullable = false, length = 500, columnDefinition = "varchar(500) collate utf8mb4_bin")
+    private String directory;
+
+    /**
+     * Name the file is stored and addressed under; unique within its directory
+     */
+    @Column(nullable = false, columnDefinition = "varchar(255) collate utf8mb4_bin")
+    private String name;
+
+    /**
+     * Size in bytes
+     */
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false, length = 100)
+    private String contentType;
+
+    /**
+     * Hex encoded SHA-256 of the content
+     */
+    @Column(nullable = false, length = 64)
+    private String digest;
+
+    /**
+     * Last modification time of the file when it was indexed
+     */
+    @Column(nullable = false)
+    private Instant modifiedAt;
+
+    /**
+     * Number of names in the directory that hold this content, this one included
+     */
+    @Column(nullable = false)
+    private int referenceCount;
+}
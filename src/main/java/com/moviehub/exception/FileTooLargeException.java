@@ -0,0 +1,8 @@
+package com.moviehub.exception;
+
+public class FileTooLargeException extends RuntimeException {
+
+    public FileTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.moviehub.exception;
+
+public class InvalidChunkException extends RuntimeException {
+
+    public InvalidChunkException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.moviehub.exception;
+
+public class InvalidFileTypeException extends RuntimeException {
+
+    public InvalidFileTypeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.moviehub.exception;
+
+public class InvalidLimitException extends RuntimeException {
+
+    public InvalidLimitException(String message) {
+        super(message);
+    }
+}
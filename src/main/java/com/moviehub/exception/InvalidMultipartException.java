@@ -0,0 +1,8 @@
+package com.moviehub.exception;
+
+public class InvalidMultipartException extends RuntimeException {
+
+    public InvalidMultipartException(String message) {
+        super(message);
+    }
+}
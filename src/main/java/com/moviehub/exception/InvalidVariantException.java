@@ -0,0 +1,8 @@
+package com.moviehub.exception;
+
+public class InvalidVariantException extends RuntimeException {
+
+    public InvalidVariantException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.moviehub.exception;
+
+public class StoredFileNotFoundException extends RuntimeException {
+
+    public StoredFileNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.moviehub.exception;
+
+public class UploadJobNotFoundException extends RuntimeException {
+
+    public UploadJobNotFoundException(String message) {
+        super(message);
+    }
+}
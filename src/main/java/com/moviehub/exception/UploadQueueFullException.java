@@ -0,0 +1,19 @@
+package com.moviehub.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Thrown when no more uploads can be accepted for background processing; answered with 503 and Retry-After
+ */
+@Getter
+public class UploadQueueFullException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public UploadQueueFullException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -1,21 +1,35 @@
 package com.moviehub.repository;
 
 
+import com.moviehub.dto.CatalogVersion;
+import com.moviehub.dto.MovieRow;
+import com.moviehub.dto.MovieVersion;
 import com.moviehub.entity.Movie;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Repository interface for Movie entity operations.
  * Provides standard CRUD operations and custom queries for movie-related data access.
  */
 @Repository
-public interface MovieRepository extends JpaRepository<Movie, Long> {
+public interface MovieRepository extends JpaRepository<Movie, Long>, MovieRepositoryCustom {
+
+    /**
+     * Select clause of the MovieRow projection: a movie joined with its cast, without hydrating entities
+     */
+    String MOVIE_ROWS = "SELECT new com.moviehub.dto.MovieRow(m.movieId, m.title, m.director, m.studio, m.releaseYear, m.poster, c)"
+            + " FROM Movie m LEFT JOIN m.movieCast c";
 
     /**
      * Find a movie by its title
@@ -25,6 +39,43 @@ public interface MovieRepository extends JpaRepository<Movie, Long> {
      */
     Optional<Movie> findByTitle(String title);
 
+    /**
+     * Load a movie and its cast as projection rows, one row per actor
+     *
+     * @param movieId the movie id
+     * @return the rows of the movie, empty if it does not exist
+     */
+    @Query(MOVIE_ROWS + " WHERE m.movieId = :movieId")
+    List<MovieRow> findRowsByMovieId(@Param("movieId") Long movieId);
+
+    /**
+     * Load all movies and their casts as projection rows in id order.
+     * Only for unpaginated reads; pages select their ids first, see {@link #findMovieIds(Pageable)}.
+     *
+     * @return the rows of all movies, those of each movie consecutive
+     */
+    @Query(MOVIE_ROWS + " ORDER BY m.movieId")
+    List<MovieRow> findAllRows();
+
+    /**
+     * Load the given movies and their casts as projection rows
+     *
+     * @param movieIds the movie ids
+     * @return the rows of the movies, in no particular order
+     */
+    @Query(MOVIE_ROWS + " WHERE m.movieId IN :movieIds")
+    List<MovieRow> findRowsByMovieIdIn(@Param("movieIds") Collection<Long> movieIds);
+
+    /**
+     * Find a page of movie ids; the rows of the page are loaded with {@link #findRowsByMovieIdIn(Collection)}.
+     * Paging ids instead of joined rows keeps the page size in movies rather than in cast members.
+     *
+     * @param pageable page and sort
+     * @return page of movie ids
+     */
+    @Query("SELECT m.movieId FROM Movie m")
+    Page<Long> findMovieIds(Pageable pageable);
+
     /**
      * Find movies by director name
      *
@@ -59,7 +110,8 @@ public interface MovieRepository extends JpaRepository<Movie, Long> {
     List<Movie> findByDirectorAndStudio(String director, String studio);
 
     /**
-     * Find movies where a specific actor is in the cast
+     * Find movies where a specific actor is in the cast.
+     * Request paths use the in-memory actor index instead, see MovieSearchService#findMoviesWithActors
      *
      * @param actor name of the actor
      * @return List of movies featuring the actor
@@ -68,13 +120,14 @@ public interface MovieRepository extends JpaRepository<Movie, Long> {
     List<Movie> findMoviesByActor(@Param("actor") String actor);
 
     /**
-     * Find the latest movies by release date
+     * Find the ids of the latest movies by release year, the most recently added first within a year.
+     * Read from the end of idx_movies_release_year_id, so only the requested rows are touched.
      *
      * @param limit number of movies to return
-     * @return List of most recent movies
+     * @return ids of the most recent movies, newest first
      */
-    @Query("SELECT m FROM Movie m ORDER BY m.releaseYear DESC")
-    List<Movie> findLatestMovies(int limit);
+    @Query("SELECT m.movieId FROM Movie m ORDER BY m.releaseYear DESC, m.movieId DESC")
+    List<Long> findLatestMovieIds(Limit limit);
 
     /**
      * Check if a movie title already exists
@@ -83,4 +136,30 @@ public interface MovieRepository extends JpaRepository<Movie, Long> {
      * @return true if the title exists, false otherwise
      */
     boolean existsByTitle(String title);
-}
\ No newline at end of file
+
+    /**
+     * Load the validators of a movie without hydrating the entity or its cast
+     *
+     * @param movieId the movie id
+     * @return Optional containing the version if the movie exists
+     */
+    @Query("SELECT new com.moviehub.dto.MovieVersion(m.movieId, m.version, m.updatedAt) FROM Movie m WHERE m.movieId = :movieId")
+    Optional<MovieVersion> findVersionById(@Param("movieId") Long movieId);
+
+    /**
+     * Compute the aggregate version of the catalog
+     *
+     * @return count, max id, version sum and last update of all movies
+     */
+    @Query("SELECT new com.moviehub.dto.CatalogVersion(COUNT(m), MAX(m.movieId), SUM(m.version), MAX(m.updatedAt)) FROM Movie m")
+    CatalogVersion findCatalogVersion();
+
+    /**
+     * Find which of the given poster file names are used by a movie
+     *
+     * @param posters poster file names
+     * @return the names among them that some movie refers to
+     */
+    @Query("SELECT DISTINCT m.poster FROM Movie m WHERE m.poster IN :posters")
+    Set<String> findPostersIn(@Param("posters") Collection<String> posters);
+}
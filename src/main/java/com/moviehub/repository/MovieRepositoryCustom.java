@@ -0,0 +1,42 @@
+package com.moviehub.repository;
+
+import com.moviehub.dto.MovieRow;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Custom repository fragment for queries that cannot be derived from method names.
+ */
+public interface MovieRepositoryCustom {
+
+    /**
+     * Properties that can be used for keyset pagination, each backed by a (property, movieId) index
+     */
+    List<String> SORTABLE_PROPERTIES = List.of("movieId", "title", "director", "studio", "releaseYear");
+
+    /**
+     * Keyset (seek) pagination: returns the ids of the movies strictly after the given (sort key, id) position.
+     * Unlike offset paging the cost does not grow with the depth of the page, and no count query is run.
+     * The rows of the page are loaded with {@link MovieRepository#findRowsByMovieIdIn}.
+     *
+     * @param sortBy        sort property, one of {@link #SORTABLE_PROPERTIES}
+     * @param direction     sort direction, also applied to the movie id tie-breaker
+     * @param lastSortValue sort key of the last movie of the previous page, or null for the first page
+     * @param lastMovieId   id of the last movie of the previous page, or null for the first page
+     * @param limit         maximum number of movies to return
+     * @return ids of the next movies in sort order
+     */
+    List<Long> findIdsAfter(String sortBy, Sort.Direction direction, Object lastSortValue, Long lastMovieId, int limit);
+
+    /**
+     * Streams every movie with its cast as projection rows in id order from a single query, reading
+     * {@code fetchSize} rows per round trip. No entities are loaded, so nothing accumulates in the
+     * persistence context. Must be consumed inside a transaction and closed afterwards.
+     *
+     * @param fetchSize JDBC fetch size
+     * @return stream of all movie rows, those of each movie consecutive
+     */
+    Stream<MovieRow> streamAllRows(int fetchSize);
+}
@@ -0,0 +1,76 @@
+package com.moviehub.repository;
+
+import com.moviehub.dto.MovieRow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of MovieRepositoryCustom using JPQL with row value comparisons,
+ * i.e. {@code WHERE (m.title, m.movieId) > (:value, :id) ORDER BY m.title, m.movieId}.
+ */
+public class MovieRepositoryCustomImpl implements MovieRepositoryCustom {
+
+    private static final int MYSQL_STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Long> findIdsAfter(String sortBy, Sort.Direction direction, Object lastSortValue, Long lastMovieId, int limit) {
+        if (!SORTABLE_PROPERTIES.contains(sortBy)) {
+            // The property is concatenated into the query, so it must come from the whitelist
+            throw new IllegalArgumentException("Unsupported sort property: " + sortBy);
+        }
+
+        boolean byId = sortBy.equals("movieId");
+        boolean first = lastMovieId == null;
+        String order = direction.isAscending() ? "ASC" : "DESC";
+        String comparison = direction.isAscending() ? ">" : "<";
+
+        StringBuilder jpql = new StringBuilder("SELECT m.movieId FROM Movie m");
+        if (!first) {
+            jpql.append(byId
+                    ? " WHERE m.movieId " + comparison + " :lastMovieId"
+                    : " WHERE (m." + sortBy + ", m.movieId) " + comparison + " (:lastSortValue, :lastMovieId)");
+        }
+        jpql.append(" ORDER BY ");
+        if (!byId) {
+            jpql.append("m.").append(sortBy).append(' ').append(order).append(", ");
+        }
+        jpql.append("m.movieId ").append(order);
+
+        TypedQuery<Long> query = entityManager.createQuery(jpql.toString(), Long.class);
+        if (!first) {
+            query.setParameter("lastMovieId", lastMovieId);
+            if (!byId) {
+                query.setParameter("lastSortValue", lastSortValue);
+            }
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * On MySQL the fetch size alone is ignored, Connector/J reads the whole result into memory unless the
+     * connection enables cursor fetching. That would put every statement on server-side prepared statements,
+     * so this statement alone is switched to row-by-row streaming instead, requested with Integer.MIN_VALUE.
+     */
+    @Override
+    public Stream<MovieRow> streamAllRows(int fetchSize) {
+        return entityManager.createQuery(MovieRepository.MOVIE_ROWS + " ORDER BY m.movieId", MovieRow.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, isMySql() ? MYSQL_STREAMING_FETCH_SIZE : fetchSize)
+                .getResultStream();
+    }
+
+    private boolean isMySql() {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof MySQLDialect;
+    }
+}
@@ -0,0 +1,67 @@
+package com.moviehub.repository;
+
+import com.moviehub.entity.StoredFile;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository of the stored file index. Every lookup is by directory and name, or by directory and digest,
+ * both of which are indexed.
+ */
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, Long> {
+
+    Optional<StoredFile> findByDirectoryAndName(String directory, String name);
+
+    boolean existsByDirectoryAndName(String directory, String name);
+
+    List<StoredFile> findByDirectoryAndNameIn(String directory, Collection<String> names);
+
+    long countByDirectoryAndDigest(String directory, String digest);
+
+    /**
+     * Find the next names of a directory in name order, for keyset paging
+     *
+     * @param directory the directory
+     * @param after     last name already read, or an empty string to start at the beginning
+     * @param limit     maximum number of names
+     * @return the names that follow after
+     */
+    @Query("SELECT f.name FROM StoredFile f WHERE f.directory = :directory AND f.name > :after ORDER BY f.name")
+    List<String> findNamesAfter(@Param("directory") String directory, @Param("after") String after, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM StoredFile f WHERE f.directory = :directory AND f.name IN :names")
+    int deleteByDirectoryAndNameIn(@Param("directory") String directory, @Param("names") Collection<String> names);
+
+    /**
+     * Add to the reference count of every name in a directory holding the given content
+     *
+     * @return the number of names updated
+     */
+    @Modifying
+    @Query("UPDATE StoredFile f SET f.referenceCount = f.referenceCount + :delta WHERE f.directory = :directory AND f.digest = :digest")
+    int addReferences(@Param("directory") String directory, @Param("digest") String digest, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE StoredFile f SET f.referenceCount = :count WHERE f.directory = :directory AND f.digest = :digest")
+    int setReferences(@Param("directory") String directory, @Param("digest") String digest, @Param("count") int count);
+
+    /**
+     * Find the contents of a directory whose names do not all carry the number of names holding them
+     *
+     * @param directory the directory
+     * @return digests whose reference counts need to be set again
+     */
+    @Query("SELECT f.digest FROM StoredFile f WHERE f.directory = :directory GROUP BY f.digest"
+            + " HAVING MIN(f.referenceCount) <> COUNT(f) OR MAX(f.referenceCount) <> COUNT(f)")
+    List<String> findMiscountedDigests(@Param("directory") String directory);
+}
@@ -0,0 +1,168 @@
+package com.moviehub.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actor to movie-id index. Every actor is stored once, keyed by the analyzed form of the name so that
+ * "Heath Ledger" and "heath  ledger" are the same actor, and owns a sorted primitive set of movie ids.
+ * Not thread safe; callers synchronize.
+ */
+public class ActorIndex {
+
+    private static final Comparator<CoStar> BY_SHARED_MOVIES =
+            Comparator.comparingInt(CoStar::sharedMovies).reversed().thenComparing(CoStar::actor);
+
+    private final Map<String, Actor> actors = new HashMap<>();
+
+    /**
+     * Cast of every indexed movie, needed to remove it again and to find co-stars
+     */
+    private final Map<Long, Actor[]> movieActors = new HashMap<>();
+
+    /**
+     * Adds a movie, replacing any earlier version of its cast
+     *
+     * @param movieId   the movie id
+     * @param movieCast the actor names
+     */
+    public void add(long movieId, Collection<String> movieCast) {
+        remove(movieId);
+        if (movieCast == null || movieCast.isEmpty()) {
+            return;
+        }
+        Map<String, Actor> cast = new LinkedHashMap<>();
+        for (String name : movieCast) {
+            String key = key(name);
+            if (!key.isEmpty() && !cast.containsKey(key)) {
+                Actor actor = actors.computeIfAbsent(key, k -> new Actor(name.strip()));
+                actor.movies.add(movieId);
+                cast.put(key, actor);
+            }
+        }
+        if (!cast.isEmpty()) {
+            movieActors.put(movieId, cast.values().toArray(Actor[]::new));
+        }
+    }
+
+    public void remove(long movieId) {
+        Actor[] cast = movieActors.remove(movieId);
+        if (cast == null) {
+            return;
+        }
+        for (Actor actor : cast) {
+            actor.movies.remove(movieId);
+            if (actor.movies.size() == 0) {
+                actors.remove(key(actor.name));
+            }
+        }
+    }
+
+    public int size() {
+        return actors.size();
+    }
+
+    /**
+     * Finds the movies featuring every one of the given actors
+     *
+     * @param names actor names, matched regardless of case, accents and spacing
+     * @return ascending movie ids, empty if any actor is unknown
+     */
+    public long[] moviesWithAll(Collection<String> names) {
+        List<MovieIdSet> sets = new ArrayList<>();
+        for (String name : names) {
+            Actor actor = actors.get(key(name));
+            if (actor == null) {
+                return new long[0];
+            }
+            if (!sets.contains(actor.movies)) {
+                sets.add(actor.movies);
+            }
+        }
+        if (sets.isEmpty()) {
+            return new long[0];
+        }
+        sets.sort(Comparator.comparingInt(MovieIdSet::size));
+        return intersect(sets);
+    }
+
+    /**
+     * Finds the actors who share at least one movie with the given actor
+     *
+     * @param name  actor name
+     * @param limit maximum number of co-stars
+     * @return co-stars ordered by decreasing number of shared movies, then by name
+     */
+    public List<CoStar> coStars(String name, int limit) {
+        Actor actor = actors.get(key(name));
+        if (actor == null || limit <= 0) {
+            return List.of();
+        }
+        Map<Actor, int[]> shared = new HashMap<>();
+        for (int i = 0; i < actor.movies.size(); i++) {
+            for (Actor coStar : movieActors.get(actor.movies.idAt(i))) {
+                if (coStar != actor) {
+                    shared.computeIfAbsent(coStar, a -> new int[1])[0]++;
+                }
+            }
+        }
+        return shared.entrySet().stream()
+                .map(entry -> new CoStar(entry.getKey().name, entry.getValue()[0]))
+                .sorted(BY_SHARED_MOVIES)
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Walks the smallest set and probes the others with binary searches that only move forward
+     */
+    private long[] intersect(List<MovieIdSet> sets) {
+        MovieIdSet smallest = sets.get(0);
+        if (sets.size() == 1) {
+            return smallest.toArray();
+        }
+        long[] result = new long[smallest.size()];
+        int found = 0;
+        int[] cursors = new int[sets.size()];
+
+        candidates:
+        for (int c = 0; c < smallest.size(); c++) {
+            long id = smallest.idAt(c);
+            for (int k = 1; k < sets.size(); k++) {
+                MovieIdSet set = sets.get(k);
+                int index = set.indexOf(id, cursors[k]);
+                if (index < 0) {
+                    cursors[k] = -(index + 1);
+                    if (cursors[k] >= set.size()) {
+                        break candidates;
+                    }
+                    continue candidates;
+                }
+                cursors[k] = index;
+            }
+            result[found++] = id;
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    private static String key(String name) {
+        return name == null ? "" : String.join(" ", TextAnalyzer.tokenize(name));
+    }
+
+    private static final class Actor {
+
+        private final String name;
+
+        private final MovieIdSet movies = new MovieIdSet();
+
+        private Actor(String name) {
+            this.name = name;
+        }
+    }
+}
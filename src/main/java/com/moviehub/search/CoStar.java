@@ -0,0 +1,7 @@
+package com.moviehub.search;
+
+/**
+ * An actor who appeared alongside another one, with the number of movies they share
+ */
+public record CoStar(String actor, int sharedMovies) {
+}
@@ -0,0 +1,175 @@
+package com.moviehub.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Term to movie-id inverted index with weighted postings.
+ * A hit scores the sum of weight * idf over the query terms it contains, where the weight reflects
+ * in which fields and how often the term occurs. Not thread safe; callers synchronize.
+ */
+public class InvertedIndex {
+
+    private static final Comparator<SearchHit> BY_RELEVANCE =
+            Comparator.comparingDouble(SearchHit::score).thenComparing(SearchHit::movieId, Comparator.reverseOrder());
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    /**
+     * Terms of every indexed movie, needed to remove it from the postings again
+     */
+    private final Map<Long, String[]> documentTerms = new HashMap<>();
+
+    /**
+     * Adds a movie, replacing any earlier version of it
+     *
+     * @param movieId     the movie id
+     * @param termWeights weight of each term in the movie
+     */
+    public void add(long movieId, Map<String, Float> termWeights) {
+        remove(movieId);
+        termWeights.forEach((term, weight) -> postings.computeIfAbsent(term, t -> new PostingList()).add(movieId, weight));
+        documentTerms.put(movieId, termWeights.keySet().toArray(String[]::new));
+    }
+
+    public void remove(long movieId) {
+        String[] terms = documentTerms.remove(movieId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            list.remove(movieId);
+            if (list.size() == 0) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    public int size() {
+        return documentTerms.size();
+    }
+
+    public int termCount() {
+        return postings.size();
+    }
+
+    /**
+     * Finds the best matching movies
+     *
+     * @param terms    analyzed query terms
+     * @param matchAll true to require every term (AND), false to require any term (OR)
+     * @param limit    maximum number of hits
+     * @return hits ordered by decreasing score
+     */
+    public List<SearchHit> search(List<String> terms, boolean matchAll, int limit) {
+        List<PostingList> lists = new ArrayList<>();
+        List<Double> idfs = new ArrayList<>();
+        for (String term : terms.stream().distinct().toList()) {
+            PostingList list = postings.get(term);
+            if (list == null) {
+                if (matchAll) {
+                    return List.of();
+                }
+                continue;
+            }
+            lists.add(list);
+            idfs.add(Math.log(1 + (double) documentTerms.size() / list.size()));
+        }
+        if (lists.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        // No more movies can match than are indexed, however large the limit
+        PriorityQueue<SearchHit> top = new PriorityQueue<>(Math.min(limit, documentTerms.size()) + 1, BY_RELEVANCE);
+        double[] idf = idfs.stream().mapToDouble(Double::doubleValue).toArray();
+        if (matchAll) {
+            intersect(lists, idf, top, limit);
+        } else {
+            union(lists, idf, top, limit);
+        }
+
+        List<SearchHit> hits = new ArrayList<>(top);
+        hits.sort(BY_RELEVANCE.reversed());
+        return hits;
+    }
+
+    /**
+     * Walks the shortest list and probes the others with binary searches that only move forward
+     */
+    private void intersect(List<PostingList> lists, double[] idf, PriorityQueue<SearchHit> top, int limit) {
+        int n = lists.size();
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> lists.get(i).size()));
+
+        PostingList shortest = lists.get(order[0]);
+        int[] cursors = new int[n];
+
+        candidates:
+        for (int c = 0; c < shortest.size(); c++) {
+            long id = shortest.idAt(c);
+            double score = shortest.weightAt(c) * idf[order[0]];
+            for (int k = 1; k < n; k++) {
+                int i = order[k];
+                PostingList list = lists.get(i);
+                int index = list.indexOf(id, cursors[i]);
+                if (index < 0) {
+                    cursors[i] = -(index + 1);
+                    if (cursors[i] >= list.size()) {
+                        break candidates;
+                    }
+                    continue candidates;
+                }
+                cursors[i] = index;
+                score += list.weightAt(index) * idf[i];
+            }
+            offer(top, new SearchHit(id, score), limit);
+        }
+    }
+
+    /**
+     * K-way merge of the sorted lists, summing the scores of ids found in several lists
+     */
+    private void union(List<PostingList> lists, double[] idf, PriorityQueue<SearchHit> top, int limit) {
+        int n = lists.size();
+        int[] cursors = new int[n];
+        while (true) {
+            long id = 0;
+            boolean remaining = false;
+            for (int i = 0; i < n; i++) {
+                if (cursors[i] < lists.get(i).size()) {
+                    long candidate = lists.get(i).idAt(cursors[i]);
+                    id = remaining ? Math.min(id, candidate) : candidate;
+                    remaining = true;
+                }
+            }
+            if (!remaining) {
+                return;
+            }
+            double score = 0;
+            for (int i = 0; i < n; i++) {
+                PostingList list = lists.get(i);
+                if (cursors[i] < list.size() && list.idAt(cursors[i]) == id) {
+                    score += list.weightAt(cursors[i]) * idf[i];
+                    cursors[i]++;
+                }
+            }
+            offer(top, new SearchHit(id, score), limit);
+        }
+    }
+
+    private void offer(PriorityQueue<SearchHit> top, SearchHit hit, int limit) {
+        top.offer(hit);
+        if (top.size() > limit) {
+            top.poll();
+        }
+    }
+}
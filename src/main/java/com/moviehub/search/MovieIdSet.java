@@ -0,0 +1,56 @@
+package com.moviehub.search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of movie ids in a primitive array, eight bytes per id and no boxing.
+ */
+final class MovieIdSet {
+
+    private long[] ids = new long[4];
+
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    long idAt(int index) {
+        return ids[index];
+    }
+
+    /**
+     * @return the index of the id, or a negative value if the id is absent
+     */
+    int indexOf(long id, int fromIndex) {
+        return Arrays.binarySearch(ids, fromIndex, size, id);
+    }
+
+    void add(long id) {
+        // Ids are usually added in increasing order, so appending is the common case
+        int index = size == 0 || ids[size - 1] < id ? -(size + 1) : indexOf(id, 0);
+        if (index >= 0) {
+            return;
+        }
+        int insertAt = -(index + 1);
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+    }
+
+    void remove(long id) {
+        int index = indexOf(id, 0);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+    }
+
+    long[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+}
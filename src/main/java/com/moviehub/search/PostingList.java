@@ -0,0 +1,64 @@
+package com.moviehub.search;
+
+import java.util.Arrays;
+
+/**
+ * Movie ids containing a term, kept sorted in a primitive array with a parallel array of term weights.
+ * No boxing, and intersections can binary search the ids directly.
+ */
+final class PostingList {
+
+    private long[] ids = new long[4];
+
+    private float[] weights = new float[4];
+
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    long idAt(int index) {
+        return ids[index];
+    }
+
+    float weightAt(int index) {
+        return weights[index];
+    }
+
+    /**
+     * @return the index of the id, or a negative value if the id is absent
+     */
+    int indexOf(long id, int fromIndex) {
+        return Arrays.binarySearch(ids, fromIndex, size, id);
+    }
+
+    void add(long id, float weight) {
+        // Ids are usually added in increasing order, so appending is the common case
+        int index = size == 0 || ids[size - 1] < id ? -(size + 1) : indexOf(id, 0);
+        if (index >= 0) {
+            weights[index] = weight;
+            return;
+        }
+        int insertAt = -(index + 1);
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            weights = Arrays.copyOf(weights, size * 2);
+        }
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        System.arraycopy(weights, insertAt, weights, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        weights[insertAt] = weight;
+        size++;
+    }
+
+    void remove(long id) {
+        int index = indexOf(id, 0);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        System.arraycopy(weights, index + 1, weights, index, size - index - 1);
+        size--;
+    }
+}
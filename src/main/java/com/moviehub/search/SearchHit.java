@@ -0,0 +1,10 @@
+package com.moviehub.search;
+
+/**
+ * A movie matching a search, with its relevance score.
+ *
+ * @param movieId id of the matching movie
+ * @param score   relevance, higher is better
+ */
+public record SearchHit(long movieId, double score) {
+}
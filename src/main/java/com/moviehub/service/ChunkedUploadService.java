@@ -0,0 +1,65 @@
+package com.moviehub.service;
+
+import com.moviehub.dto.UploadInitRequest;
+import com.moviehub.dto.UploadStatusResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Service interface for resumable uploads. A file is sent as a series of fixed-size chunks
+ * that may arrive in any order and in parallel, and is moved into the file store once complete.
+ */
+public interface ChunkedUploadService {
+
+    /**
+     * Opens a new upload session and preallocates its staging file
+     *
+     * @param request name and size of the file to upload; a chunk size below file.upload.min-chunk-size
+     *                is rejected unless it covers the whole file
+     * @return the status of the new session
+     * @throws IOException if the staging file cannot be created
+     */
+    UploadStatusResponse initUpload(UploadInitRequest request) throws IOException;
+
+    /**
+     * Writes one chunk at its offset in the staging file and verifies its checksum
+     *
+     * @param uploadId   identifier of the session
+     * @param chunkIndex zero based index of the chunk
+     * @param offset     byte offset of the chunk, must match the index
+     * @param checksum   hex encoded SHA-256 of the chunk
+     * @param content    body of the chunk
+     * @return the status of the session after the chunk was stored
+     * @throws IOException if writing the chunk fails
+     */
+    UploadStatusResponse writeChunk(String uploadId, int chunkIndex, long offset, String checksum,
+                                    InputStream content) throws IOException;
+
+    /**
+     * Returns the progress of an upload session
+     *
+     * @param uploadId identifier of the session
+     * @return the status of the session
+     */
+    UploadStatusResponse getStatus(String uploadId);
+
+    /**
+     * Moves a fully received file into the upload directory and closes the session. Waits for chunks
+     * still being written; if the file cannot be stored, e.g. because its name is taken, the session
+     * stays open so the upload can be completed again later or aborted.
+     *
+     * @param uploadId identifier of the session
+     * @return the stored filename
+     * @throws IOException if the file cannot be moved
+     */
+    String completeUpload(String uploadId) throws IOException;
+
+    /**
+     * Aborts an upload session and removes its staging file
+     *
+     * @param uploadId identifier of the session
+     * @throws IOException if the staging file cannot be removed
+     */
+    void abortUpload(String uploadId) throws IOException;
+}
@@ -0,0 +1,337 @@
+package com.moviehub.service;
+
+import com.moviehub.dto.UploadInitRequest;
+import com.moviehub.dto.UploadStatusResponse;
+import com.moviehub.exception.InvalidChunkException;
+import com.moviehub.exception.UploadSessionNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Implementation of ChunkedUploadService keeping sessions in memory.
+ * Each session owns a preallocated staging file; chunks are written with positional
+ * writes so several of them can be stored concurrently without coordination. A chunk is first received
+ * into a file of its own and verified, so a slow client holds nothing of the session while it sends.
+ * Completing, aborting or expiring a session waits only for the verified chunks being copied into it.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class ChunkedUploadServiceImpl implements ChunkedUploadService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileService fileService;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    @Value("${file.upload.path}")
+    private String uploadPath;
+
+    @Value("${file.upload.staging-path:${file.upload.path}/.staging}")
+    private String stagingPath;
+
+    @Value("${file.upload.chunk-size:8388608}")
+    private int defaultChunkSize;
+
+    @Value("${file.upload.min-chunk-size:1048576}")
+    private int minChunkSize;
+
+    @Value("${file.upload.session-ttl:PT24H}")
+    private Duration sessionTtl;
+
+    @Value("${file.allowed.extensions}")
+    private String allowedExtensions;
+
+    @Value("${file.max.size:524288000}")
+    private long maxFileSize;
+
+    @Override
+    public UploadStatusResponse initUpload(UploadInitRequest request) throws IOException {
+        String extension = fileService.getFileExtension(request.fileName()).toLowerCase();
+        if (!Arrays.asList(allowedExtensions.split(",")).contains(extension)) {
+            throw new InvalidChunkException("Invalid file type. Allowed types: " + allowedExtensions);
+        }
+        if (request.totalSize() > maxFileSize) {
+            throw new InvalidChunkException("File size exceeds limit of " + maxFileSize + " bytes");
+        }
+
+        int chunkSize = request.chunkSize() != null ? request.chunkSize() : defaultChunkSize;
+        // Tiny chunks would mean a request and a tracked chunk index per few bytes
+        if (chunkSize < minChunkSize && chunkSize < request.totalSize()) {
+            throw new InvalidChunkException("Chunk size must be at least " + minChunkSize + " bytes");
+        }
+        String uploadId = UUID.randomUUID().toString();
+
+        fileService.createDirectory(stagingPath);
+        Path stagingFile = Paths.get(stagingPath, uploadId + ".part");
+
+        // Preallocate so every chunk can be written in place at its own offset
+        try (RandomAccessFile raf = new RandomAccessFile(stagingFile.toFile(), "rw")) {
+            raf.setLength(request.totalSize());
+        }
+        FileChannel channel = FileChannel.open(stagingFile, StandardOpenOption.WRITE);
+
+        UploadSession session = new UploadSession(uploadId, request.fileName(), request.totalSize(),
+                chunkSize, stagingFile, channel);
+        sessions.put(uploadId, session);
+
+        log.info("Opened upload session " + uploadId + " for " + request.fileName());
+        return session.toStatus();
+    }
+
+    @Override
+    public UploadStatusResponse writeChunk(String uploadId, int chunkIndex, long offset, String checksum,
+                                           InputStream content) throws IOException {
+        UploadSession session = findSession(uploadId);
+
+        if (chunkIndex < 0 || chunkIndex >= session.totalChunks) {
+            throw new InvalidChunkException("Chunk index out of range: " + chunkIndex);
+        }
+        if (offset != (long) chunkIndex * session.chunkSize) {
+            throw new InvalidChunkException("Offset " + offset + " does not match chunk " + chunkIndex);
+        }
+
+        byte[] expectedDigest;
+        try {
+            expectedDigest = HexFormat.of().parseHex(checksum == null ? "" : checksum.trim());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidChunkException("Chunk checksum must be a hex encoded SHA-256");
+        }
+
+        long expectedLength = Math.min(session.chunkSize, session.totalSize - offset);
+
+        // Received and verified next to the staging file, at the client's pace and without the session lock
+        Path chunk = Files.createTempFile(session.stagingFile.getParent(), uploadId + "-" + chunkIndex + "-", ".chunk");
+        try {
+            receiveChunk(content, chunk, chunkIndex, expectedLength, expectedDigest);
+
+            // Shared with other chunks, exclusive to completion, so the channel stays open while this chunk is copied
+            session.lock.readLock().lock();
+            try {
+                if (session.closed) {
+                    throw new UploadSessionNotFoundException("Upload session not found: " + uploadId);
+                }
+
+                // A re-sent chunk overwrites the stored bytes, so it stays missing until it is copied in
+                if (session.receivedChunks.remove(chunkIndex)) {
+                    session.bytesReceived.addAndGet(-expectedLength);
+                }
+                try (FileChannel in = FileChannel.open(chunk, StandardOpenOption.READ)) {
+                    long copied = 0;
+                    while (copied < expectedLength) {
+                        copied += session.channel.transferFrom(in, offset + copied, expectedLength - copied);
+                    }
+                }
+                if (session.receivedChunks.add(chunkIndex)) {
+                    session.bytesReceived.addAndGet(expectedLength);
+                }
+                session.lastActivity = Instant.now();
+                return session.toStatus();
+            } finally {
+                session.lock.readLock().unlock();
+            }
+        } finally {
+            Files.deleteIfExists(chunk);
+        }
+    }
+
+    /**
+     * Writes a chunk from the client to its own file, checking its length and checksum on the way
+     */
+    private static void receiveChunk(InputStream content, Path chunk, int chunkIndex, long expectedLength,
+                                     byte[] expectedDigest) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long written = 0;
+        int read;
+
+        try (OutputStream out = Files.newOutputStream(chunk, StandardOpenOption.WRITE)) {
+            while ((read = content.read(buffer)) != -1) {
+                if (written + read > expectedLength) {
+                    throw new InvalidChunkException("Chunk " + chunkIndex + " is larger than " + expectedLength + " bytes");
+                }
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+                written += read;
+            }
+        }
+
+        if (written != expectedLength) {
+            throw new InvalidChunkException("Chunk " + chunkIndex + " is incomplete: " + written + " of " + expectedLength + " bytes");
+        }
+        if (!MessageDigest.isEqual(digest.digest(), expectedDigest)) {
+            throw new InvalidChunkException("Checksum mismatch for chunk " + chunkIndex);
+        }
+    }
+
+    @Override
+    public UploadStatusResponse getStatus(String uploadId) {
+        return findSession(uploadId).toStatus();
+    }
+
+    @Override
+    public String completeUpload(String uploadId) throws IOException {
+        UploadSession session = findSession(uploadId);
+
+        session.lock.writeLock().lock();
+        try {
+            if (session.closed) {
+                throw new UploadSessionNotFoundException("Upload session not found: " + uploadId);
+            }
+            if (session.receivedChunks.size() != session.totalChunks) {
+                throw new InvalidChunkException("Upload is incomplete: " + session.receivedChunks.size()
+                        + " of " + session.totalChunks + " chunks received");
+            }
+
+            session.channel.force(false);
+            session.channel.close();
+            String fileName;
+            try {
+                fileName = fileService.storeFile(uploadPath, session.stagingFile, session.fileName);
+            } catch (IOException | RuntimeException e) {
+                // The staged upload is kept, e.g. to complete it once a file of the same name is deleted
+                if (Files.exists(session.stagingFile)) {
+                    session.channel = FileChannel.open(session.stagingFile, StandardOpenOption.WRITE);
+                } else {
+                    session.closed = true;
+                    sessions.remove(uploadId);
+                }
+                throw e;
+            }
+            session.closed = true;
+            sessions.remove(uploadId);
+            log.info("Completed upload session " + uploadId + " as " + fileName);
+            return fileName;
+        } finally {
+            session.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void abortUpload(String uploadId) throws IOException {
+        UploadSession session = findSession(uploadId);
+        session.lock.writeLock().lock();
+        try {
+            if (session.closed) {
+                throw new UploadSessionNotFoundException("Upload session not found: " + uploadId);
+            }
+            sessions.remove(uploadId);
+            discard(session);
+        } finally {
+            session.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops sessions that have not received a chunk within the configured TTL
+     */
+    @Scheduled(fixedDelayString = "${file.upload.session-cleanup-interval:600000}")
+    public void removeExpiredSessions() {
+        Instant cutoff = Instant.now().minus(sessionTtl);
+        sessions.values().removeIf(session -> {
+            // A session busy with a chunk or its completion is left for the next run
+            if (session.lastActivity.isAfter(cutoff) || !session.lock.writeLock().tryLock()) {
+                return false;
+            }
+            try {
+                if (session.closed) {
+                    return false;
+                }
+                discard(session);
+                log.info("Removed expired upload session " + session.uploadId);
+            } catch (IOException e) {
+                log.error("Failed to remove staging file " + session.stagingFile, e);
+            } finally {
+                session.lock.writeLock().unlock();
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Closes a session and deletes its staging file, holding the session's write lock
+     */
+    private void discard(UploadSession session) throws IOException {
+        session.closed = true;
+        session.channel.close();
+        Files.deleteIfExists(session.stagingFile);
+    }
+
+    private UploadSession findSession(String uploadId) {
+        UploadSession session = sessions.get(uploadId);
+        if (session == null) {
+            throw new UploadSessionNotFoundException("Upload session not found: " + uploadId);
+        }
+        return session;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class UploadSession {
+
+        private final String uploadId;
+        private final String fileName;
+        private final long totalSize;
+        private final int chunkSize;
+        private final int totalChunks;
+        private final Path stagingFile;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        // Guarded by lock, like closed: reopened when completing fails
+        private FileChannel channel;
+        private boolean closed;
+        private final Set<Integer> receivedChunks = ConcurrentHashMap.newKeySet();
+        private final AtomicLong bytesReceived = new AtomicLong();
+        private volatile Instant lastActivity = Instant.now();
+
+        private UploadSession(String uploadId, String fileName, long totalSize, int chunkSize,
+                              Path stagingFile, FileChannel channel) {
+            this.uploadId = uploadId;
+            this.fileName = fileName;
+            this.totalSize = totalSize;
+            this.chunkSize = chunkSize;
+            this.totalChunks = (int) ((totalSize + chunkSize - 1) / chunkSize);
+            this.stagingFile = stagingFile;
+            this.channel = channel;
+        }
+
+        private UploadStatusResponse toStatus() {
+            List<Integer> received = receivedChunks.stream().sorted().toList();
+            return new UploadStatusResponse(uploadId, fileName, totalSize, chunkSize, totalChunks,
+                    received, bytesReceived.get(), received.size() == totalChunks);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.moviehub.service;
+
+import com.moviehub.exception.FileExistsException;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Content-addressed blob store for one upload directory.
+ * Each distinct content is stored once under its SHA-256 digest in {@code .blobs/<2 hex>/<digest>};
+ * each file name is mapped to one digest, and a blob is deleted once no name maps to it. The mappings are
+ * kept in an append-only journal, {@code .blobs/refs.log}, of one line per change, so a put or release
+ * writes a line instead of every mapping. The journal is compacted once it holds mostly superseded lines.
+ */
+@Log4j2
+public class ContentAddressedStore {
+
+    public static final String BLOBS_DIRECTORY = ".blobs";
+
+    private static final String JOURNAL_FILE = "refs.log";
+
+    /**
+     * References file of earlier versions, which rewrote it on every change; migrated into the journal on open
+     */
+    private static final String LEGACY_REFS_FILE = "refs.properties";
+
+    private static final String RELEASED = "-";
+
+    /**
+     * Journal lines below which the journal is never compacted
+     */
+    private static final int COMPACTION_THRESHOLD = 1024;
+
+    private final Path blobs;
+
+    private final Path journal;
+
+    /**
+     * Digest of the content of each name
+     */
+    private final Map<String, String> refs = new HashMap<>();
+
+    /**
+     * Number of names per digest, a blob is deleted when it drops to zero
+     */
+    private final Map<String, Integer> blobReferences = new HashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private int journalLines;
+
+    private ContentAddressedStore(Path directory) {
+        this.blobs = directory.resolve(BLOBS_DIRECTORY);
+        this.journal = blobs.resolve(JOURNAL_FILE);
+    }
+
+    /**
+     * Opens the store of a directory, replaying its journal
+     *
+     * @param directory the upload directory
+     * @return the store
+     * @throws IOException if the references cannot be read
+     */
+    public static ContentAddressedStore open(Path directory) throws IOException {
+        ContentAddressedStore store = new ContentAddressedStore(directory);
+        Files.createDirectories(store.blobs);
+        Path legacyRefs = store.blobs.resolve(LEGACY_REFS_FILE);
+        if (Files.exists(store.journal)) {
+            store.replay();
+        } else if (Files.exists(legacyRefs)) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(legacyRefs)) {
+                properties.load(in);
+            }
+            // Its per-name counts are dropped: a name maps to its content once, however often it was stored
+            for (String name : properties.stringPropertyNames()) {
+                store.map(name, properties.getProperty(name).split(":")[0]);
+            }
+            store.compact();
+            Files.delete(legacyRefs);
+            log.info("Migrated " + store.refs.size() + " references of " + directory + " to " + JOURNAL_FILE);
+        }
+        return store;
+    }
+
+    /**
+     * Stores a stream under a name, hashing it while it is written.
+     * When the digest is already stored the written copy is dropped and only the reference is added;
+     * storing a name again with the content it already has changes nothing.
+     *
+     * @param name    file name
+     * @param content content to store
+     * @return true if the name is new, false if it already held this content
+     * @throws IOException if writing fails
+     * @throws FileExistsException if the name is already mapped to different content
+     */
+    public boolean put(String name, InputStream content) throws IOException {
+        Path temp = Files.createTempFile(blobs, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (DigestInputStream in = new DigestInputStream(content, digest)) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return commit(name, HexFormat.of().formatHex(digest.digest()), temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Stores an already written file under a name, moving it into place when its content is new
+     *
+     * @param name   file name
+     * @param source file to store, consumed by this call
+     * @return true if the name is new, false if it already held this content
+     * @throws IOException if hashing or moving fails
+     * @throws FileExistsException if the name is already mapped to different content
+     */
+    public boolean putFile(String name, Path source) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(source), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        try {
+            return commit(name, HexFormat.of().formatHex(digest.digest()), source);
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    /**
+     * Resolves a name to the blob holding its content
+     *
+     * @param name file name
+     * @return the blob path, or null if the name is unknown
+     */
+    public Path resolve(String name) {
+        lock.lock();
+        try {
+            String digest = refs.get(name);
+            return digest == null ? null : blobPath(digest);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a name; its blob is deleted once no other name references it
+     *
+     * @param name file name
+     * @return true if the name was known
+     * @throws IOException if the blob or the journal cannot be written
+     */
+    public boolean release(String name) throws IOException {
+        lock.lock();
+        try {
+            String digest = refs.get(name);
+            if (digest == null) {
+                return false;
+            }
+            append(RELEASED + " " + name);
+            unmap(name);
+            if (!blobReferences.containsKey(digest)) {
+                Files.deleteIfExists(blobPath(digest));
+                log.info("Deleted unreferenced blob " + digest);
+            }
+            compactIfSuperseded();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean contains(String name) {
+        lock.lock();
+        try {
+            return refs.containsKey(name);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<String> names() {
+        lock.lock();
+        try {
+            return List.copyOf(refs.keySet());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the digest a name is mapped to
+     *
+     * @param name file name
+     * @return the hex encoded SHA-256, or null if the name is unknown
+     */
+    public String digestOf(String name) {
+        lock.lock();
+        try {
+            return refs.get(name);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean commit(String name, String digest, Path candidate) throws IOException {
+        lock.lock();
+        try {
+            String existing = refs.get(name);
+            if (digest.equals(existing)) {
+                return false;
+            }
+            if (existing != null) {
+                throw new FileExistsException("File already exists! Please enter another filename");
+            }
+
+            Path blob = blobPath(digest);
+            if (Files.exists(blob)) {
+                log.info("Content of " + name + " already stored as " + digest + ", skipping write");
+            } else {
+                Files.createDirectories(blob.getParent());
+                Files.move(candidate, blob, StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            append(digest + " " + name);
+            map(name, digest);
+            compactIfSuperseded();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void map(String name, String digest) {
+        String previous = refs.put(name, digest);
+        if (previous != null) {
+            unreference(previous);
+        }
+        blobReferences.merge(digest, 1, Integer::sum);
+    }
+
+    private void unmap(String name) {
+        String digest = refs.remove(name);
+        if (digest != null) {
+            unreference(digest);
+        }
+    }
+
+    private void unreference(String digest) {
+        if (blobReferences.merge(digest, -1, Integer::sum) <= 0) {
+            blobReferences.remove(digest);
+        }
+    }
+
+    /**
+     * Applies the journal: {@code <digest> <name>} maps a name, replacing what it held, {@code - <name>} removes it.
+     * A last line without its newline was cut short by a crash; it is dropped, and the journal rewritten so
+     * the next line does not run into it.
+     */
+    private void replay() throws IOException {
+        String content = Files.readString(journal, StandardCharsets.UTF_8);
+        List<String> lines = content.lines().toList();
+        boolean torn = !content.isEmpty() && !content.endsWith("\n");
+        for (String line : torn ? lines.subList(0, lines.size() - 1) : lines) {
+            int separator = line.indexOf(' ');
+            String name = line.substring(separator + 1);
+            String digest = line.substring(0, Math.max(separator, 0));
+            if (RELEASED.equals(digest)) {
+                unmap(name);
+            } else {
+                map(name, digest);
+            }
+        }
+        journalLines = lines.size();
+        if (torn) {
+            log.warn("Dropped the incomplete last line of " + journal);
+        }
+        if (torn) {
+            compact();
+        } else {
+            compactIfSuperseded();
+        }
+    }
+
+    private void append(String line) throws IOException {
+        Files.writeString(journal, line + "\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journalLines++;
+    }
+
+    /**
+     * Compacts the journal once most of its lines are superseded, which keeps appends amortized constant
+     */
+    private void compactIfSuperseded() throws IOException {
+        if (journalLines > COMPACTION_THRESHOLD && journalLines > 2 * refs.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the journal with one line per name
+     */
+    private void compact() throws IOException {
+        Path temp = Files.createTempFile(blobs, JOURNAL_FILE, ".tmp");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, String> ref : refs.entrySet()) {
+                    out.write(ref.getValue() + " " + ref.getKey() + "\n");
+                }
+            }
+            Files.move(temp, journal, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        journalLines = refs.size();
+    }
+
+    private Path blobPath(String digest) {
+        return blobs.resolve(digest.substring(0, 2)).resolve(digest);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.moviehub.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Shapes download bandwidth with token buckets: one shared by all downloads and one per client address.
+ * A download takes tokens from both buckets before each chunk it writes and, when either is in debt,
+ * parks its own thread until the chunk is paid for. The buckets take no locks, so a throttled download
+ * never holds up another one. That thread is a worker of the bounded applicationTaskExecutor: with virtual
+ * threads the park releases its carrier, as no monitor is held while waiting; without them a throttled
+ * download keeps one of the pool's platform workers, and downloads beyond the pool are answered with 503.
+ */
+@Component
+public class DownloadBandwidthLimiter {
+
+    /**
+     * Bytes paid for at a time, small enough that waits stay short and the rate smooth
+     */
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final TokenBucket global;
+
+    private final long perClientLimit;
+
+    private final Duration burst;
+
+    private final Cache<String, TokenBucket> clients;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final Counter globalThrottledBytes;
+
+    private final Counter clientThrottledBytes;
+
+    private final Timer throttleWait;
+
+    /**
+     * @param globalLimit    bytes per second over all downloads, 0 for no limit
+     * @param perClientLimit bytes per second per client address, 0 for no limit
+     * @param burst          unused rate a bucket saves up, as time at its rate
+     */
+    public DownloadBandwidthLimiter(MeterRegistry meterRegistry,
+                                    @Value("${file.download.bandwidth.global-limit:0}") DataSize globalLimit,
+                                    @Value("${file.download.bandwidth.per-client-limit:0}") DataSize perClientLimit,
+                                    @Value("${file.download.bandwidth.burst:PT1S}") Duration burst) {
+        this.global = globalLimit.toBytes() > 0 ? new TokenBucket(globalLimit.toBytes(), burst) : null;
+        this.perClientLimit = perClientLimit.toBytes();
+        this.burst = burst;
+        // A client idle for longer than the burst has a full bucket, so forgetting it loses nothing
+        this.clients = Caffeine.newBuilder()
+                .expireAfterAccess(burst.plusMinutes(1))
+                .build();
+
+        this.globalThrottledBytes = Counter.builder("file.download.throttled.bytes")
+                .description("Bytes of file downloads held back by bandwidth limits")
+                .baseUnit("bytes")
+                .tag("limit", "global")
+                .register(meterRegistry);
+        this.clientThrottledBytes = Counter.builder("file.download.throttled.bytes")
+                .description("Bytes of file downloads held back by bandwidth limits")
+                .baseUnit("bytes")
+                .tag("limit", "client")
+                .register(meterRegistry);
+        this.throttleWait = Timer.builder("file.download.throttle.wait")
+                .description("Time downloads waited for bandwidth")
+                .register(meterRegistry);
+        Gauge.builder("file.download.queued", waiting, AtomicInteger::get)
+                .description("Downloads currently waiting for bandwidth")
+                .baseUnit("transfers")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return whether any limit is configured
+     */
+    public boolean isEnabled() {
+        return global != null || perClientLimit > 0;
+    }
+
+    /**
+     * Wraps a download's output so that writes keep to the bandwidth limits
+     *
+     * @param out    the response body
+     * @param client address of the client, the key of its per-client limit
+     * @return the shaped stream, or {@code out} itself when no limit is configured
+     */
+    public OutputStream shape(OutputStream out, String client) {
+        if (!isEnabled()) {
+            return out;
+        }
+        TokenBucket clientBucket = perClientLimit > 0
+                ? clients.get(client, key -> new TokenBucket(perClientLimit, burst))
+                : null;
+        return new ShapedOutputStream(out, clientBucket);
+    }
+
+    private final class ShapedOutputStream extends FilterOutputStream {
+
+        private final TokenBucket client;
+
+        private ShapedOutputStream(OutputStream out, TokenBucket client) {
+            super(out);
+            this.client = client;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            acquire(1);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int chunk = Math.min(len, CHUNK_SIZE);
+                acquire(chunk);
+                out.write(b, off, chunk);
+                off += chunk;
+                len -= chunk;
+            }
+        }
+
+        private void acquire(int bytes) throws IOException {
+            long globalWait = global == null ? 0 : global.reserve(bytes);
+            long clientWait = client == null ? 0 : client.reserve(bytes);
+            long wait = Math.max(globalWait, clientWait);
+            if (wait <= 0) {
+                return;
+            }
+            (globalWait >= clientWait ? globalThrottledBytes : clientThrottledBytes).increment(bytes);
+
+            long deadline = System.nanoTime() + wait;
+            waiting.incrementAndGet();
+            try {
+                for (long remaining = wait; remaining > 0; remaining = deadline - System.nanoTime()) {
+                    LockSupport.parkNanos(this, remaining);
+                    if (Thread.interrupted()) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for download bandwidth");
+                    }
+                }
+            } finally {
+                waiting.decrementAndGet();
+                throttleWait.record(wait, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
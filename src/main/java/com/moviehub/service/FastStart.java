@@ -0,0 +1,272 @@
+package com.moviehub.service;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * "Fast start" for MP4 and QuickTime files: moves a moov box (the index of the movie) that follows the media
+ * data to the front, so players can start before the whole file has arrived. The file is read as a sequence
+ * of ISO base media boxes; only the moov box is held in memory, everything else is copied straight through.
+ * Moving moov shifts the media data, so the chunk offsets in its stco and co64 tables are rewritten to match.
+ */
+@Log4j2
+public final class FastStart {
+
+    /**
+     * Extensions of files built from ISO base media boxes
+     */
+    public static final Set<String> EXTENSIONS = Set.of("mp4", "m4v", "mov", "3gp");
+
+    /**
+     * Boxes on the way from moov to the chunk offset tables
+     */
+    private static final Set<String> CONTAINERS = Set.of("moov", "trak", "mdia", "minf", "stbl");
+
+    private static final long MAX_STCO_OFFSET = 0xFFFFFFFFL;
+
+    private FastStart() {
+    }
+
+    /**
+     * Writes the file with its moov box moved in front of the first mdat box
+     *
+     * @param in          the file
+     * @param out         receives the rewritten file; nothing is written when false is returned
+     * @param maxMoovSize largest moov box that is loaded to be rewritten
+     * @return true if the file was rewritten, false if it needs no rewrite or cannot be rewritten
+     * @throws IOException if reading or writing fails
+     */
+    public static boolean relocateMoov(FileChannel in, OutputStream out, long maxMoovSize) throws IOException {
+        List<Box> boxes = topLevelBoxes(in);
+        if (boxes == null) {
+            return false;
+        }
+        Box moov = null;
+        Box firstMdat = null;
+        for (Box box : boxes) {
+            switch (box.type()) {
+                case "moov" -> {
+                    if (moov != null) {
+                        return false;
+                    }
+                    moov = box;
+                }
+                case "mdat" -> {
+                    if (firstMdat == null) {
+                        firstMdat = box;
+                    }
+                }
+                // Fragmented files index every fragment where it is, their moov comes first already
+                case "moof" -> {
+                    return false;
+                }
+                default -> {
+                }
+            }
+        }
+        if (moov == null || firstMdat == null || moov.offset() < firstMdat.offset()) {
+            return false;
+        }
+        if (moov.size() > Math.min(maxMoovSize, Integer.MAX_VALUE)) {
+            log.warn("moov box of " + moov.size() + " bytes exceeds " + maxMoovSize + ", file left as uploaded");
+            return false;
+        }
+
+        ByteBuffer moovBox = ByteBuffer.allocate((int) moov.size());
+        read(in, moovBox, moov.offset());
+        if (moov.toEnd()) {
+            // A last box may leave its size at 0 for "up to the end of the file", which no longer holds once it moves
+            moovBox.putInt(0, (int) moov.size());
+        }
+        Shift shift = new Shift(firstMdat.offset(), moov.offset(), moov.size());
+        if (!patchChunkOffsets(moovBox, 0, moovBox.capacity(), shift)) {
+            return false;
+        }
+
+        WritableByteChannel target = Channels.newChannel(out);
+        for (Box box : boxes) {
+            if (box == firstMdat) {
+                out.write(moovBox.array());
+            }
+            if (box != moov) {
+                transfer(in, box.offset(), box.size(), target);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits the file into its top level boxes
+     *
+     * @return the boxes in file order, or null if the file is not a well-formed sequence of boxes
+     */
+    private static List<Box> topLevelBoxes(FileChannel in) throws IOException {
+        List<Box> boxes = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(16);
+        long length = in.size();
+        long position = 0;
+        while (position < length) {
+            if (length - position < 8) {
+                return null;
+            }
+            header.clear().limit(8);
+            read(in, header, position);
+            long size = Integer.toUnsignedLong(header.getInt(0));
+            String type = type(header, 4);
+            int headerSize = 8;
+            if (size == 1) {
+                if (length - position < 16) {
+                    return null;
+                }
+                header.clear().limit(16);
+                read(in, header, position);
+                size = header.getLong(8);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = length - position;
+                boxes.add(new Box(type, position, size, true));
+                break;
+            }
+            if (size < headerSize || size > length - position) {
+                return null;
+            }
+            boxes.add(new Box(type, position, size, false));
+            position += size;
+        }
+        return boxes;
+    }
+
+    /**
+     * Walks the boxes between start and end, descending into containers, and shifts every chunk offset
+     *
+     * @return false if the boxes are malformed or an offset cannot be shifted
+     */
+    private static boolean patchChunkOffsets(ByteBuffer moov, int start, int end, Shift shift) {
+        int position = start;
+        while (position < end) {
+            if (end - position < 8) {
+                return false;
+            }
+            long size = Integer.toUnsignedLong(moov.getInt(position));
+            String type = type(moov, position + 4);
+            int headerSize = 8;
+            if (size == 1) {
+                if (end - position < 16) {
+                    return false;
+                }
+                size = moov.getLong(position + 8);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = end - position;
+            }
+            if (size < headerSize || size > end - position) {
+                return false;
+            }
+            int boxEnd = position + (int) size;
+            int body = position + headerSize;
+            boolean patched = switch (type) {
+                case "stco" -> patchTable(moov, body, boxEnd, 4, shift);
+                case "co64" -> patchTable(moov, body, boxEnd, 8, shift);
+                // Compressed QuickTime headers hide their offsets from us
+                case "cmov" -> false;
+                default -> !CONTAINERS.contains(type) || patchChunkOffsets(moov, body, boxEnd, shift);
+            };
+            if (!patched) {
+                return false;
+            }
+            position = boxEnd;
+        }
+        return true;
+    }
+
+    /**
+     * Shifts the entries of a chunk offset table: version and flags, entry count, then the offsets
+     */
+    private static boolean patchTable(ByteBuffer moov, int body, int end, int entrySize, Shift shift) {
+        if (end - body < 8) {
+            return false;
+        }
+        long entries = Integer.toUnsignedLong(moov.getInt(body + 4));
+        int first = body + 8;
+        if (entries * entrySize > end - first) {
+            return false;
+        }
+        for (int i = 0; i < entries; i++) {
+            int position = first + i * entrySize;
+            long offset = entrySize == 4 ? Integer.toUnsignedLong(moov.getInt(position)) : moov.getLong(position);
+            long shifted = shift.apply(offset);
+            if (shifted < 0) {
+                return false;
+            }
+            if (entrySize == 4) {
+                if (shifted > MAX_STCO_OFFSET) {
+                    log.warn("Chunk offset " + shifted + " no longer fits a 32-bit stco table, file left as uploaded");
+                    return false;
+                }
+                moov.putInt(position, (int) shifted);
+            } else {
+                moov.putLong(position, shifted);
+            }
+        }
+        return true;
+    }
+
+    private static void read(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of file");
+            }
+        }
+    }
+
+    private static void transfer(FileChannel in, long position, long count, WritableByteChannel target) throws IOException {
+        long sent = 0;
+        // transferTo may send fewer bytes than requested, so loop until the box is done
+        while (sent < count) {
+            long n = in.transferTo(position + sent, count - sent, target);
+            if (n <= 0) {
+                throw new EOFException("Unexpected end of file");
+            }
+            sent += n;
+        }
+    }
+
+    private static String type(ByteBuffer buffer, int index) {
+        byte[] type = new byte[4];
+        buffer.get(index, type);
+        return new String(type, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * @param toEnd whether the box declared size 0, running to the end of the file
+     */
+    private record Box(String type, long offset, long size, boolean toEnd) {
+    }
+
+    /**
+     * Where a byte of the original file ends up once moov moves in front of the first mdat
+     */
+    private record Shift(long insertAt, long moovOffset, long moovSize) {
+
+        /**
+         * @return the new offset, or -1 for an offset inside moov itself
+         */
+        long apply(long offset) {
+            if (offset < insertAt || offset >= moovOffset + moovSize) {
+                return offset;
+            }
+            return offset < moovOffset ? offset + moovSize : -1;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.moviehub.service;
+
+import java.nio.file.Path;
+
+/**
+ * Places stored files in a directory. With one or more levels, files are spread over nested
+ * subdirectories named after bytes of a hash of the file name, e.g. {@code 3f/a2/poster.jpg} with two
+ * levels, so no single directory holds more than a small share of the files. The place depends on
+ * the name alone, so callers keep addressing files by name.
+ */
+public final class FileLayout {
+
+    public static final int MAX_LEVELS = 4;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final int levels;
+
+    /**
+     * @param levels number of subdirectory levels, 0 keeps every file directly in the directory
+     */
+    public FileLayout(int levels) {
+        if (levels < 0 || levels > MAX_LEVELS) {
+            throw new IllegalArgumentException("file.layout.levels must be between 0 and " + MAX_LEVELS + ": " + levels);
+        }
+        this.levels = levels;
+    }
+
+    public int levels() {
+        return levels;
+    }
+
+    /**
+     * @return where the file lives, or would live, in the directory
+     */
+    public Path resolve(Path directory, String fileName) {
+        Path path = directory;
+        int hash = hash(fileName);
+        for (int level = 0; level < levels; level++) {
+            path = path.resolve(shardName(hash, level));
+        }
+        return path.resolve(fileName);
+    }
+
+    /**
+     * @return the subdirectories of the file joined by '/', e.g. {@code 3f/a2}; empty without levels.
+     * Every component has two characters, so comparing keys as strings orders them like the directory tree.
+     */
+    public String shard(String fileName) {
+        if (levels == 0) {
+            return "";
+        }
+        int hash = hash(fileName);
+        StringBuilder shard = new StringBuilder(levels * 3 - 1);
+        for (int level = 0; level < levels; level++) {
+            if (level > 0) {
+                shard.append('/');
+            }
+            shard.append(shardName(hash, level));
+        }
+        return shard.toString();
+    }
+
+    /**
+     * @return true if the name is one a shard subdirectory could have
+     */
+    public static boolean isShardName(String name) {
+        return name.length() == 2 && isHex(name.charAt(0)) && isHex(name.charAt(1));
+    }
+
+    private static String shardName(int hash, int level) {
+        int value = (hash >>> (24 - 8 * level)) & 0xFF;
+        return new String(new char[]{HEX[value >>> 4], HEX[value & 0xF]});
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f');
+    }
+
+    /**
+     * FNV-1a over the name followed by a murmur3 finalizer, so similar names land in unrelated shards.
+     * Part of the on-disk format: changing it moves every file.
+     */
+    private static int hash(String fileName) {
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < fileName.length(); i++) {
+            hash ^= fileName.charAt(i);
+            hash *= 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
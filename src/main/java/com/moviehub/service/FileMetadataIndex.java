@@ -0,0 +1,230 @@
+package com.moviehub.service;
+
+import com.moviehub.entity.StoredFile;
+import com.moviehub.exception.FileExistsException;
+import com.moviehub.repository.StoredFileRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Database index of the files kept by FileService. A change to the index and the file operation it
+ * describes run in one transaction: the operation runs last, and if it fails the index change is rolled back.
+ * Directories are identified by their absolute, normalized path.
+ */
+@Component
+public class FileMetadataIndex {
+
+    private final StoredFileRepository storedFileRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Names read per query when listing
+     */
+    @Value("${file.index.page-size:1000}")
+    private int pageSize;
+
+    public FileMetadataIndex(StoredFileRepository storedFileRepository, PlatformTransactionManager transactionManager) {
+        this.storedFileRepository = storedFileRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // An index change commits with its file operation, not with a movie transaction the caller may be in
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public boolean contains(String directory, String name) {
+        return storedFileRepository.existsByDirectoryAndName(key(directory), name);
+    }
+
+    public Optional<StoredFile> find(String directory, String name) {
+        return storedFileRepository.findByDirectoryAndName(key(directory), name);
+    }
+
+    /**
+     * @return the indexed entries among the given names, by name
+     */
+    public Map<String, StoredFile> findAll(String directory, Collection<String> names) {
+        return storedFileRepository.findByDirectoryAndNameIn(key(directory), names).stream()
+                .collect(Collectors.toMap(StoredFile::getName, Function.identity()));
+    }
+
+    /**
+     * Streams the names of a directory in name order, reading one page per query as the stream is consumed
+     *
+     * @param after last name already returned, or null to start at the beginning
+     */
+    public Stream<String> names(String directory, String after) {
+        String key = key(directory);
+        Iterator<String> names = new Iterator<>() {
+
+            private List<String> page = List.of();
+
+            private int position;
+
+            private String last = after == null ? "" : after;
+
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (position == page.size() && !exhausted) {
+                    page = storedFileRepository.findNamesAfter(key, last, Limit.of(pageSize));
+                    position = 0;
+                    exhausted = page.size() < pageSize;
+                }
+                return position < page.size();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = page.get(position++);
+                return last;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(names,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Reads one page of the names of a directory in name order
+     *
+     * @param after last name already read, or null to start at the beginning
+     * @param limit largest number of names returned
+     */
+    public List<String> names(String directory, String after, int limit) {
+        return storedFileRepository.findNamesAfter(key(directory), after == null ? "" : after, Limit.of(limit));
+    }
+
+    /**
+     * Indexes a new file, then runs the operation that makes it visible on disk
+     *
+     * @param operation runs inside the transaction once the entry is written
+     * @throws FileExistsException if the directory already holds a file of that name
+     * @throws IOException         if the operation fails, in which case nothing is indexed
+     */
+    public void add(String directory, String name, long size, String contentType, String digest, Instant modifiedAt,
+                    FileOperation<?> operation) throws IOException {
+        String key = key(directory);
+        try {
+            inTransaction(() -> {
+                int others = storedFileRepository.addReferences(key, digest, 1);
+                storedFileRepository.saveAndFlush(StoredFile.builder()
+                        .directory(key)
+                        .name(name)
+                        .size(size)
+                        .contentType(contentType)
+                        .digest(digest)
+                        .modifiedAt(modifiedAt)
+                        .referenceCount(others + 1)
+                        .build());
+                return operation.run();
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw new FileExistsException("File already exists! Please enter another filename");
+        }
+    }
+
+    /**
+     * Drops a file from the index, then runs the operation that deletes it from disk. The operation
+     * runs even if the file is not indexed, so files the index missed can still be deleted.
+     *
+     * @param operation runs inside the transaction, returns whether a file was deleted
+     * @return true if the file was indexed or the operation deleted it
+     * @throws IOException if the operation fails, in which case the entry is kept
+     */
+    public boolean remove(String directory, String name, FileOperation<Boolean> operation) throws IOException {
+        String key = key(directory);
+        return inTransaction(() -> {
+            Optional<StoredFile> storedFile = storedFileRepository.findByDirectoryAndName(key, name);
+            storedFile.ifPresent(file -> {
+                storedFileRepository.delete(file);
+                storedFileRepository.addReferences(key, file.getDigest(), -1);
+            });
+            return operation.run() || storedFile.isPresent();
+        });
+    }
+
+    /**
+     * Writes entries found or changed by a reconciliation pass. Reference counts are left to
+     * {@link #recountReferences(String)}, run once the pass is done.
+     */
+    public void saveAll(List<StoredFile> storedFiles) {
+        transactionTemplate.executeWithoutResult(status -> storedFileRepository.saveAll(storedFiles));
+    }
+
+    /**
+     * Drops entries whose files no longer exist, without touching the disk
+     */
+    public void removeAll(String directory, Collection<String> names) {
+        transactionTemplate.executeWithoutResult(status -> storedFileRepository.deleteByDirectoryAndNameIn(key(directory), names));
+    }
+
+    /**
+     * Sets the reference counts of the contents whose counts are off, e.g. after a reconciliation pass
+     *
+     * @return number of contents whose counts were corrected
+     */
+    public int recountReferences(String directory) {
+        String key = key(directory);
+        List<String> digests = storedFileRepository.findMiscountedDigests(key);
+        for (String digest : digests) {
+            transactionTemplate.executeWithoutResult(status -> storedFileRepository.setReferences(key, digest,
+                    (int) storedFileRepository.countByDirectoryAndDigest(key, digest)));
+        }
+        return digests.size();
+    }
+
+    /**
+     * @return the directory as it is stored in the index
+     */
+    public String key(String directory) {
+        return Paths.get(directory).toAbsolutePath().normalize().toString();
+    }
+
+    private <T> T inTransaction(FileOperation<T> work) throws IOException {
+        try {
+            return transactionTemplate.execute(status -> {
+                try {
+                    return work.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * A file system operation that is part of an index transaction
+     */
+    @FunctionalInterface
+    public interface FileOperation<T> {
+
+        T run() throws IOException;
+    }
+}
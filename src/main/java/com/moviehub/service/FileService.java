@@ -1,15 +1,22 @@
 package com.moviehub.service;
 
+import com.moviehub.dto.IndexReconciliationResult;
+import com.moviehub.dto.LayoutMigrationResult;
+import com.moviehub.dto.StoredFileInfo;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Service interface for handling file operations including uploads, downloads,
- * and file management functionality.
+ * and file management functionality. MP4 and QuickTime videos are stored in their fast start
+ * form, with the moov box in front of the media data.
  */
 public interface FileService {
 
@@ -23,6 +30,36 @@ public interface FileService {
      */
     String uploadFile(String path, MultipartFile file) throws IOException;
 
+    /**
+     * Moves an already written file into the specified path with an atomic rename
+     *
+     * @param path             destination directory path
+     * @param source           fully written file, on the same file store as the destination
+     * @param originalFilename original name of the file
+     * @return the generated filename
+     * @throws IOException if the move fails
+     * @throws com.moviehub.exception.FileExistsException if a file with the same name is already stored
+     */
+    String storeFile(String path, Path source, String originalFilename) throws IOException;
+
+    /**
+     * Writes a stream straight into the specified path in a single pass. The first bytes are checked against
+     * the signature of the file's extension before anything is written, and writing stops as soon as the
+     * stream grows past maxSize; a rejected or failed file leaves nothing behind.
+     *
+     * @param path             destination directory path
+     * @param content          the file content, read once
+     * @param originalFilename original name of the file
+     * @param maxSize          largest accepted size in bytes
+     * @return the generated filename
+     * @throws IOException if reading or writing fails
+     * @throws com.moviehub.exception.EmptyFileException if the stream is empty
+     * @throws com.moviehub.exception.InvalidFileTypeException if the content does not match the extension
+     * @throws com.moviehub.exception.FileTooLargeException if the stream is longer than maxSize
+     * @throws com.moviehub.exception.FileExistsException if a file with the same name is already stored
+     */
+    String storeStream(String path, InputStream content, String originalFilename, long maxSize) throws IOException;
+
     /**
      * Retrieves a file as an InputStream
      * @param path directory path of the file
@@ -33,7 +70,53 @@ public interface FileService {
     InputStream getResourceFile(String path, String name) throws FileNotFoundException;
 
     /**
-     * Validates if the file type is allowed
+     * Resolves a stored file to its path on disk
+     *
+     * @param path     directory path of the file
+     * @param fileName name of the file
+     * @return path of the existing regular file
+     * @throws com.moviehub.exception.EmptyFileException if the file doesn't exist
+     */
+    Path getFilePath(String path, String fileName);
+
+    /**
+     * Copies a byte range of a file to the given stream using {@link java.nio.channels.FileChannel#transferTo}.
+     * The stream is not a channel, so the bytes pass through a heap buffer on the way; this is not zero-copy.
+     *
+     * @param file     file to read from
+     * @param position offset of the first byte to send
+     * @param count    number of bytes to send
+     * @param out      destination stream
+     * @throws IOException if reading or writing fails
+     */
+    void transferRange(Path file, long position, long count, OutputStream out) throws IOException;
+
+    /**
+     * Returns the SHA-256 digest of a stored file, hashing it when needed. Digests are remembered per size and
+     * modification time, so a recently hashed file is only hashed again after it changes.
+     *
+     * @param file file to hash
+     * @return hex encoded SHA-256 of the file
+     * @throws IOException if the file cannot be read
+     */
+    String getFileDigest(Path file) throws IOException;
+
+    /**
+     * Returns the SHA-256 digest of a stored file if it is known without reading the file: recorded in the
+     * file index, remembered from an earlier hash, or the name of a content-addressed blob, in each case
+     * only while the file's size and modification time still match
+     *
+     * @param path     directory path of the file
+     * @param fileName name of the file
+     * @param file     the file on disk
+     * @return hex encoded SHA-256, or null if it is only known by hashing the file
+     * @throws IOException if the file's attributes cannot be read
+     */
+    String findFileDigest(String path, String fileName, Path file) throws IOException;
+
+    /**
+     * Validates if the file type is allowed: the extension must be listed and the
+     * leading bytes of the file must match the format the extension names
      *
      * @param file              file to validate
      * @param allowedExtensions list of allowed file extensions
@@ -50,6 +133,18 @@ public interface FileService {
      */
     boolean deleteFile(String path) throws IOException;
 
+    /**
+     * Moves a stored file out of its directory into a quarantine directory and drops it from the index,
+     * so it can still be restored by hand until the quarantine is cleared
+     *
+     * @param path       directory of the file
+     * @param fileName   name of the file
+     * @param quarantine directory the file is moved to, created if needed
+     * @return size of the quarantined file in bytes, or -1 if no such file is stored
+     * @throws IOException if the file cannot be moved, in which case it stays stored
+     */
+    long quarantineFile(String path, String fileName, Path quarantine) throws IOException;
+
     /**
      * Creates a directory if it doesn't exist
      *
@@ -77,13 +172,34 @@ public interface FileService {
     String getReadableFileSize(MultipartFile file);
 
     /**
-     * Checks if a file exists at the specified path
+     * Checks if a file exists at the specified path. Answered from the file index, without touching the disk,
+     * except for an indexed directory whose startup reconciliation has not completed yet.
      *
      * @param path file path to check
      * @return true if file exists, false otherwise
      */
     boolean fileExists(String path);
 
+    /**
+     * Checks whether a name still refers to stored content, asking the storage rather than the file index.
+     * In content-addressed mode a name stored more than once keeps its content until every reference is deleted.
+     *
+     * @param path     directory path of the file
+     * @param fileName name of the file
+     * @return true if the name can still be read
+     */
+    boolean isStored(String path, String fileName);
+
+    /**
+     * Returns the indexed details of a stored file, without touching the disk
+     *
+     * @param path     directory path of the file
+     * @param fileName name of the file
+     * @return size, content type, digest, modification time and reference count of the file
+     * @throws com.moviehub.exception.StoredFileNotFoundException if no such file is stored
+     */
+    StoredFileInfo getFileInfo(String path, String fileName);
+
     /**
      * Lists all files in a directory
      *
@@ -93,6 +209,57 @@ public interface FileService {
      */
     List<String> listFiles(String directoryPath) throws IOException;
 
+    /**
+     * Streams the names of the files in a directory in name order, starting after the given name.
+     * Names are read from the file index a page at a time as the stream is consumed; an indexed directory
+     * whose startup reconciliation has not completed yet is listed from the disk instead.
+     *
+     * @param directoryPath path to directory
+     * @param after         last name already returned, or null to start at the beginning
+     * @return lazily read file names
+     * @throws IOException if the index cannot be read
+     */
+    Stream<String> streamFiles(String directoryPath, String after) throws IOException;
+
+    /**
+     * Moves the files at the top of a directory into the subdirectories of the configured layout
+     * (file.layout.levels). Files stay readable while this runs, and it can be repeated safely.
+     *
+     * @param path directory path
+     * @return how many files were moved, skipped and failed
+     * @throws IOException if the directory cannot be read
+     */
+    LayoutMigrationResult migrateLayout(String path) throws IOException;
+
+    /**
+     * Brings the file index of a directory in line with the files on disk: files missing from the index or
+     * changed since they were indexed are (re)indexed, hashing their content, and entries whose file is gone
+     * are dropped. Runs in the background at startup for the directories in file.index.directories.
+     *
+     * @param path directory path
+     * @return how many entries were added, updated and removed
+     * @throws IOException if the directory cannot be read
+     */
+    IndexReconciliationResult reconcileIndex(String path) throws IOException;
+
+    /**
+     * Resolves where a file of the given name is placed in a directory under the configured layout,
+     * whether or not it exists
+     *
+     * @param path     directory path
+     * @param fileName name of the file
+     * @return the place of the file
+     */
+    Path layoutPath(String path, String fileName);
+
+    /**
+     * Determines the media type of a file from its extension
+     *
+     * @param fileName name of the file
+     * @return the media type, application/octet-stream if the extension is not known
+     */
+    String getContentType(String fileName);
+
     /**
      * Gets the file extension from a filename
      *
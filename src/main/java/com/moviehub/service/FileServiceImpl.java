@@ -1,26 +1,141 @@
 package com.moviehub.service;
 
+import com.moviehub.dto.IndexReconciliationResult;
+import com.moviehub.dto.LayoutMigrationResult;
+import com.moviehub.dto.StoredFileInfo;
+import com.moviehub.entity.StoredFile;
 import com.moviehub.exception.EmptyFileException;
+import com.moviehub.exception.FileExistsException;
+import com.moviehub.exception.FileTooLargeException;
+import com.moviehub.exception.InvalidFileTypeException;
+import com.moviehub.exception.StoredFileNotFoundException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.DecimalFormat;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 /**
  * Implementation of FileService interface providing file management functionality.
+ * Every stored file is recorded in the {@link FileMetadataIndex}, which answers existence checks,
+ * listings and file details; the disk is only read for file contents. The indexed directories are reconciled
+ * with the disk in the background after startup; until a directory's pass is done, existence checks and
+ * listings for it are answered from the disk.
  */
 
 @Service
 @Log4j2
 public class FileServiceImpl implements FileService {
 
+    private static final String CONTENT_ADDRESSED_MODE = "content-addressed";
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_REMEMBERED_DIGESTS = 10_000;
+
+    /**
+     * Storage mode: "plain" keeps every file under its own name, "content-addressed"
+     * stores each distinct content once and maps names to it
+     */
+    @Value("${file.storage.mode:plain}")
+    private String storageMode = "plain";
+
+    /**
+     * Where plain stores place their files; content-addressed stores shard their blobs themselves
+     */
+    private FileLayout layout = new FileLayout(0);
+
+    private final Map<Path, ContentAddressedStore> stores = new ConcurrentHashMap<>();
+
+    /**
+     * Digests of recently hashed or stored files, bounded so a large store cannot fill the heap
+     */
+    private final Cache<Path, FileDigest> digests = Caffeine.newBuilder()
+            .maximumSize(MAX_REMEMBERED_DIGESTS)
+            .build();
+
+    private final FileMetadataIndex fileIndex;
+
+    /**
+     * Directories whose index is reconciled with the disk at startup
+     */
+    private List<String> indexedDirectories = List.of();
+
+    /**
+     * Index keys of the indexed directories whose reconciliation has not completed yet
+     */
+    private final Set<String> unreconciledDirectories = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Files read from disk, and index entries checked, per batch while reconciling
+     */
+    @Value("${file.index.page-size:1000}")
+    private int reconcileBatchSize = 1000;
+
+    /**
+     * Whether MP4/QuickTime uploads with a trailing moov box are rewritten with moov in front
+     */
+    @Value("${file.video.faststart.enabled:true}")
+    private boolean fastStartEnabled = true;
+
+    /**
+     * Largest moov box loaded into memory for that rewrite; files with a bigger one are stored as uploaded
+     */
+    @Value("${file.video.faststart.max-moov-size:64MB}")
+    private DataSize fastStartMaxMoovSize = DataSize.ofMegabytes(64);
+
+    public FileServiceImpl(FileMetadataIndex fileIndex) {
+        this.fileIndex = fileIndex;
+    }
+
+    @Value("${file.layout.levels:0}")
+    void setLayoutLevels(int levels) {
+        this.layout = new FileLayout(levels);
+    }
+
+    @Value("${file.index.directories:}")
+    void setIndexedDirectories(List<String> directories) {
+        this.indexedDirectories = directories;
+        directories.forEach(directory -> unreconciledDirectories.add(fileIndex.key(directory)));
+    }
+
     @Override
     public String uploadFile(String path, MultipartFile file) throws IOException {
         if (file.isEmpty()) {
@@ -32,17 +147,95 @@ public class FileServiceImpl implements FileService {
 
         // Generate unique filename
         String fileName = generateUniqueFileName(file.getOriginalFilename());
-        String filePath = normalizePath(path + File.separator + fileName);
+        if (isContentAddressed()) {
+            boolean added;
+            try (InputStream inputStream = file.getInputStream()) {
+                added = putBlob(path, fileName, inputStream);
+            }
+            indexBlob(path, fileName, added);
+            return fileName;
+        }
+
+        Path target = newFileTarget(path, fileName);
         // Log the path for debugging
-        log.info("File will be stored at: " + filePath);
-        // Copy file to destination
-        try (InputStream inputStream = file.getInputStream()) {
-            Files.copy(inputStream, Paths.get(filePath));
+        log.info("File will be stored at: " + target);
+        // Copy file next to its destination, hashing it on the way so its ETag is ready for the first download
+        Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(inputStream, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            commit(path, fileName, temp, target, HexFormat.of().formatHex(digest.digest()));
+        } finally {
+            Files.deleteIfExists(temp);
         }
 
         return fileName;
     }
 
+    @Override
+    public String storeFile(String path, Path source, String originalFilename) throws IOException {
+        createDirectory(path);
+
+        String fileName = generateUniqueFileName(originalFilename);
+        if (isContentAddressed()) {
+            indexBlob(path, fileName, putBlobFile(path, fileName, source));
+            return fileName;
+        }
+
+        Path target = newFileTarget(path, fileName);
+        log.info("File will be stored at: " + target);
+        commit(path, fileName, source, target, hash(source));
+        return fileName;
+    }
+
+    @Override
+    public String storeStream(String path, InputStream content, String originalFilename, long maxSize) throws IOException {
+        byte[] head = new byte[STREAM_BUFFER_SIZE];
+        int headLength = content.readNBytes(head, 0, head.length);
+        if (headLength == 0) {
+            throw new EmptyFileException("File cannot be empty");
+        }
+        if (!FileSignatures.matches(getFileExtension(originalFilename), head, headLength)) {
+            throw new InvalidFileTypeException("File content does not match its type: " + originalFilename);
+        }
+        if (headLength > maxSize) {
+            throw new FileTooLargeException("File size exceeds limit of " + maxSize + " bytes");
+        }
+
+        createDirectory(path);
+        String fileName = generateUniqueFileName(originalFilename);
+        InputStream rest = new SizeLimitedInputStream(content, maxSize - headLength,
+                "File size exceeds limit of " + maxSize + " bytes");
+        if (isContentAddressed()) {
+            indexBlob(path, fileName,
+                    putBlob(path, fileName, new SequenceInputStream(new ByteArrayInputStream(head, 0, headLength), rest)));
+            return fileName;
+        }
+
+        Path target = newFileTarget(path, fileName);
+        // Written next to the target and renamed, so a partial upload is never visible under its name
+        Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+        MessageDigest digest = sha256();
+        try {
+            try (OutputStream out = Files.newOutputStream(temp, StandardOpenOption.WRITE)) {
+                digest.update(head, 0, headLength);
+                out.write(head, 0, headLength);
+                int read;
+                while ((read = rest.read(head)) != -1) {
+                    digest.update(head, 0, read);
+                    out.write(head, 0, read);
+                }
+            }
+            commit(path, fileName, temp, target, HexFormat.of().formatHex(digest.digest()));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        log.info("File streamed to: " + target);
+        return fileName;
+    }
+
     @Override
     public InputStream getResourceFile(String path, String fileName) throws FileNotFoundException {
 
@@ -50,13 +243,7 @@ public class FileServiceImpl implements FileService {
             throw new EmptyFileException("Path and file name must not be empty");
         }
 
-        String fullPath = path + File.separator + fileName;
-        File file = new File(fullPath);
-
-        if (!file.exists()) {
-            log.error("File not found: " + fullPath);
-            throw new EmptyFileException("File not found: " + fileName);
-        }
+        File file = getFilePath(path, fileName).toFile();
 
         try {
             return new FileInputStream(file);
@@ -65,6 +252,100 @@ public class FileServiceImpl implements FileService {
         }
     }
 
+    @Override
+    public Path getFilePath(String path, String fileName) {
+
+        if (path == null || path.trim().isEmpty() || fileName == null || fileName.trim().isEmpty()) {
+            throw new EmptyFileException("Path and file name must not be empty");
+        }
+
+        Path directory = Paths.get(path).toAbsolutePath().normalize();
+        Path filePath = isContentAddressed()
+                ? store(path).resolve(fileName)
+                : locate(directory, fileName);
+
+        if (filePath == null || !filePath.startsWith(directory) || !Files.isRegularFile(filePath)) {
+            log.error("File not found: " + filePath);
+            throw new EmptyFileException("File not found: " + fileName);
+        }
+        return filePath;
+    }
+
+    @Override
+    public void transferRange(Path file, long position, long count, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long sent = 0;
+            // transferTo may send fewer bytes than requested, so loop until the range is done
+            while (sent < count) {
+                long n = channel.transferTo(position + sent, count - sent, target);
+                if (n <= 0) {
+                    throw new EOFException("Unexpected end of file: " + file.getFileName());
+                }
+                sent += n;
+            }
+        }
+    }
+
+    @Override
+    public String getFileDigest(Path file) throws IOException {
+        String blobDigest = blobDigest(file);
+        if (blobDigest != null) {
+            return blobDigest;
+        }
+
+        Path key = file.toAbsolutePath().normalize();
+        long size = Files.size(key);
+        long modified = Files.getLastModifiedTime(key).toMillis();
+        FileDigest cached = digests.getIfPresent(key);
+        if (cached != null && cached.size() == size && cached.modified() == modified) {
+            return cached.digest();
+        }
+
+        String hex = hash(key);
+        digests.put(key, new FileDigest(size, modified, hex));
+        return hex;
+    }
+
+    @Override
+    public String findFileDigest(String path, String fileName, Path file) throws IOException {
+        String blobDigest = blobDigest(file);
+        if (blobDigest != null) {
+            return blobDigest;
+        }
+
+        Path key = file.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        long modified = attributes.lastModifiedTime().toMillis();
+        FileDigest cached = digests.getIfPresent(key);
+        if (cached != null && cached.size() == attributes.size() && cached.modified() == modified) {
+            return cached.digest();
+        }
+
+        // Indexed when the file was stored or reconciled; only valid while the file is unchanged since
+        StoredFile indexed = fileIndex.find(path, fileName).orElse(null);
+        if (indexed == null || indexed.getDigest() == null || indexed.getSize() != attributes.size()
+                || !indexed.getModifiedAt().equals(modifiedAt(attributes))) {
+            return null;
+        }
+        digests.put(key, new FileDigest(attributes.size(), modified, indexed.getDigest()));
+        return indexed.getDigest();
+    }
+
+    /**
+     * Content-addressed blobs are named after their digest
+     *
+     * @return the digest, or null if the file is not a blob
+     */
+    private static String blobDigest(Path file) {
+        Path parent = file.getParent();
+        if (parent != null && parent.getParent() != null
+                && ContentAddressedStore.BLOBS_DIRECTORY.equals(parent.getParent().getFileName().toString())) {
+            return file.getFileName().toString();
+        }
+        return null;
+    }
+
     @Override
     public boolean isValidFileType(MultipartFile file, List<String> allowedExtensions) {
         String originalFilename = file.getOriginalFilename();
@@ -73,13 +354,49 @@ public class FileServiceImpl implements FileService {
         }
 
         String extension = getFileExtension(originalFilename).toLowerCase();
-        return allowedExtensions.contains(extension.toLowerCase());
+        if (!allowedExtensions.contains(extension)) {
+            return false;
+        }
+        byte[] head = new byte[FileSignatures.HEAD_LENGTH];
+        try (InputStream in = file.getInputStream()) {
+            return FileSignatures.matches(extension, head, in.readNBytes(head, 0, head.length));
+        } catch (IOException e) {
+            log.warn("Could not read " + originalFilename + " to check its type: " + e.getMessage());
+            return false;
+        }
     }
 
     @Override
     public boolean deleteFile(String path) throws IOException {
         Path filePath = Paths.get(path);
-        return Files.deleteIfExists(filePath);
+        String directory = filePath.getParent().toString();
+        String fileName = filePath.getFileName().toString();
+        if (isContentAddressed()) {
+            return fileIndex.remove(directory, fileName, () -> store(directory).release(fileName));
+        }
+        Path located = locate(filePath.getParent(), fileName);
+        return fileIndex.remove(directory, fileName, () -> located != null && Files.deleteIfExists(located));
+    }
+
+    @Override
+    public long quarantineFile(String path, String fileName, Path quarantine) throws IOException {
+        Path stored = isContentAddressed() ? store(path).resolve(fileName) : locate(Paths.get(path), fileName);
+        if (stored == null) {
+            return -1;
+        }
+        long size = Files.size(stored);
+        Files.createDirectories(quarantine);
+        Path target = quarantine.resolve(fileName);
+        boolean quarantined = fileIndex.remove(path, fileName, () -> {
+            if (isContentAddressed()) {
+                // The blob may hold the content of other names too, so the quarantine gets a copy
+                Files.copy(stored, target, StandardCopyOption.REPLACE_EXISTING);
+                return store(path).release(fileName);
+            }
+            Files.move(stored, target, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        });
+        return quarantined ? size : -1;
     }
 
     @Override
@@ -112,18 +429,238 @@ public class FileServiceImpl implements FileService {
 
     @Override
     public boolean fileExists(String path) {
-        return Files.exists(Paths.get(path));
+        Path filePath = Paths.get(path);
+        String directory = filePath.getParent().toString();
+        String fileName = filePath.getFileName().toString();
+        return isReconciled(directory) ? fileIndex.contains(directory, fileName) : isStored(directory, fileName);
+    }
+
+    @Override
+    public boolean isStored(String path, String fileName) {
+        return isContentAddressed() ? store(path).contains(fileName) : locate(Paths.get(path), fileName) != null;
+    }
+
+    @Override
+    public StoredFileInfo getFileInfo(String path, String fileName) {
+        return fileIndex.find(path, fileName)
+                .map(file -> new StoredFileInfo(file.getName(), file.getSize(), file.getContentType(), file.getDigest(),
+                        file.getModifiedAt(), file.getReferenceCount()))
+                .orElseThrow(() -> new StoredFileNotFoundException("File not found: " + fileName));
     }
 
 
     @Override
     public List<String> listFiles(String directoryPath) throws IOException {
-        try (var paths = Files.walk(Paths.get(directoryPath), 1)) {
-            return paths
-                    .filter(Files::isRegularFile)
-                    .map(Path::getFileName)
-                    .map(Path::toString)
-                    .collect(Collectors.toList());
+        return streamFiles(directoryPath, null).toList();
+    }
+
+    @Override
+    public Stream<String> streamFiles(String directoryPath, String after) {
+        if (isReconciled(directoryPath)) {
+            return fileIndex.names(directoryPath, after);
+        }
+        // Listed from the disk in the order the index uses, so a cursor stays valid once the index takes over
+        Path directory = Paths.get(directoryPath).toAbsolutePath().normalize();
+        Stream<String> onDisk = !Files.isDirectory(directory) ? Stream.empty()
+                : isContentAddressed() ? store(directoryPath).names().stream() : scanFiles(directory);
+        SortableName cursor = after == null ? null : new SortableName(after);
+        try (onDisk) {
+            List<String> names = onDisk.map(SortableName::new)
+                    .filter(name -> cursor == null || name.compareTo(cursor) > 0)
+                    .sorted()
+                    .map(SortableName::name)
+                    .toList();
+            return names.stream();
+        }
+    }
+
+    @Override
+    public LayoutMigrationResult migrateLayout(String path) throws IOException {
+        Path directory = Paths.get(path).normalize();
+        if (isContentAddressed() || layout.levels() == 0 || !Files.isDirectory(directory)) {
+            return new LayoutMigrationResult(path, 0, 0, 0);
+        }
+
+        long moved = 0;
+        long skipped = 0;
+        long failed = 0;
+        // Entries moved away while the directory is read do not affect how the remaining ones are returned
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path file : entries) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(".") || !Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+                    continue;
+                }
+                Path target = layout.resolve(directory, name);
+                try {
+                    if (Files.exists(target)) {
+                        log.warn("Not migrating " + file + ": " + target + " already exists");
+                        skipped++;
+                        continue;
+                    }
+                    Files.createDirectories(target.getParent());
+                    Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+                    FileDigest digest = digests.asMap().remove(file.toAbsolutePath().normalize());
+                    if (digest != null) {
+                        digests.put(target.toAbsolutePath().normalize(), digest);
+                    }
+                    moved++;
+                } catch (IOException e) {
+                    log.error("Failed to migrate " + file + " to " + target, e);
+                    failed++;
+                }
+            }
+        }
+        log.info("Migrated " + directory + " to " + layout.levels() + " shard levels: " + moved + " moved, "
+                + skipped + " skipped, " + failed + " failed");
+        return new LayoutMigrationResult(path, moved, skipped, failed);
+    }
+
+    /**
+     * Reconciles the index of every indexed directory once the application is up, on a background thread
+     * so startup does not wait for new files to be hashed. A directory whose pass fails keeps being answered
+     * from the disk until a later reconciliation succeeds.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileIndexes() {
+        Thread.ofPlatform().name("file-index-reconciler").daemon().start(() -> {
+            for (String directory : indexedDirectories) {
+                try {
+                    reconcileIndex(directory);
+                } catch (IOException | RuntimeException e) {
+                    log.error("Failed to reconcile the file index of " + directory, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Files on disk are read in batches, each batch compared with its index entries in one query; only new
+     * or changed files are hashed. Entries are then paged through to drop those whose file is gone.
+     */
+    @Override
+    public IndexReconciliationResult reconcileIndex(String path) throws IOException {
+        long start = System.nanoTime();
+        Path directory = Paths.get(path).toAbsolutePath().normalize();
+        long added = 0;
+        long updated = 0;
+        long removed = 0;
+        long failed = 0;
+
+        Stream<String> onDisk = !Files.isDirectory(directory) ? Stream.empty()
+                : isContentAddressed() ? store(path).names().stream() : scanFiles(directory);
+        try (onDisk) {
+            Iterator<String> names = onDisk.iterator();
+            while (names.hasNext()) {
+                Set<String> batch = new LinkedHashSet<>();
+                while (batch.size() < reconcileBatchSize && names.hasNext()) {
+                    batch.add(names.next());
+                }
+                Map<String, StoredFile> indexed = fileIndex.findAll(path, batch);
+                List<StoredFile> changed = new ArrayList<>();
+                long batchAdded = 0;
+                for (String name : batch) {
+                    try {
+                        Path file = isContentAddressed() ? store(path).resolve(name) : locate(directory, name);
+                        if (file == null) {
+                            continue;
+                        }
+                        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                        StoredFile storedFile = indexed.get(name);
+                        if (storedFile != null && storedFile.getSize() == attributes.size()
+                                && storedFile.getModifiedAt().equals(modifiedAt(attributes))) {
+                            continue;
+                        }
+                        if (storedFile == null) {
+                            storedFile = StoredFile.builder().directory(fileIndex.key(path)).name(name).build();
+                            batchAdded++;
+                        }
+                        storedFile.setSize(attributes.size());
+                        storedFile.setContentType(getContentType(name));
+                        storedFile.setDigest(getFileDigest(file));
+                        storedFile.setModifiedAt(modifiedAt(attributes));
+                        changed.add(storedFile);
+                    } catch (IOException e) {
+                        log.warn("Could not index " + name + " in " + directory + ": " + e.getMessage());
+                        failed++;
+                    }
+                }
+                if (changed.isEmpty()) {
+                    continue;
+                }
+                try {
+                    fileIndex.saveAll(changed);
+                    added += batchAdded;
+                    updated += changed.size() - batchAdded;
+                } catch (RuntimeException e) {
+                    // e.g. a file stored concurrently was indexed first; the next reconciliation picks the rest up
+                    log.warn("Could not index a batch of " + changed.size() + " files in " + directory + ": " + e.getMessage());
+                    failed += changed.size();
+                }
+            }
+        }
+
+        try (Stream<String> indexed = fileIndex.names(path, null)) {
+            List<String> missing = new ArrayList<>();
+            Iterator<String> names = indexed.iterator();
+            while (names.hasNext()) {
+                String name = names.next();
+                boolean exists = isContentAddressed() ? store(path).contains(name) : locate(directory, name) != null;
+                if (!exists) {
+                    missing.add(name);
+                }
+                if (missing.size() == reconcileBatchSize || (!names.hasNext() && !missing.isEmpty())) {
+                    fileIndex.removeAll(path, missing);
+                    removed += missing.size();
+                    missing = new ArrayList<>();
+                }
+            }
+        }
+        int recounted = fileIndex.recountReferences(path);
+        unreconciledDirectories.remove(fileIndex.key(path));
+
+        log.info("Reconciled the file index of " + directory + " in " + (System.nanoTime() - start) / 1_000_000 + " ms: "
+                + added + " added, " + updated + " updated, " + removed + " removed, " + failed + " failed, "
+                + recounted + " reference counts corrected");
+        return new IndexReconciliationResult(path, added, updated, removed, failed);
+    }
+
+    @Override
+    public Path layoutPath(String path, String fileName) {
+        return layout.resolve(Paths.get(path).normalize(), fileName);
+    }
+
+    @Override
+    public String getContentType(String fileName) {
+        String ext = getFileExtension(fileName).toLowerCase();
+        switch (ext) {
+            // Existing types
+            case "jpg":
+            case "jpeg":
+                return "image/jpeg";
+            case "png":
+                return "image/png";
+            case "gif":
+                return "image/gif";
+            // Added video types
+            case "mp4":
+                return "video/mp4";
+            case "avi":
+                return "video/x-msvideo";
+            case "wmv":
+                return "video/x-ms-wmv";
+            case "mov":
+                return "video/quicktime";
+            case "mkv":
+                return "video/x-matroska";
+            case "flv":
+                return "video/x-flv";
+            case "webm":
+                return "video/webm";
+            case "3gp":
+                return "video/3gpp";
+            default:
+                return "application/octet-stream";
         }
     }
 
@@ -136,13 +673,282 @@ public class FileServiceImpl implements FileService {
     }
 
     /**
-     * Helper method to normalize file path
+     * Finds a stored file: at its place in the layout, or at the top of the directory if it was stored before
+     * the layout had levels and has not been migrated yet
+     *
+     * @return the file, or null if it does not exist or the name is not a plain file name
+     */
+    private Path locate(Path directory, String fileName) {
+        if (fileName.isEmpty() || fileName.equals(".") || fileName.equals("..")
+                || fileName.indexOf('/') >= 0 || fileName.indexOf('\\') >= 0) {
+            return null;
+        }
+        Path path = layout.resolve(directory, fileName);
+        if (Files.exists(path)) {
+            return path;
+        }
+        if (layout.levels() > 0) {
+            Path legacy = directory.resolve(fileName);
+            if (Files.isRegularFile(legacy)) {
+                return legacy;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Place for a new file in the layout, with its shard directories created
+     *
+     * @throws FileExistsException if a file of that name is already stored
+     */
+    private Path newFileTarget(String path, String fileName) throws IOException {
+        Path directory = Paths.get(path).normalize();
+        if (fileIndex.contains(path, fileName) || !isReconciled(path) && locate(directory, fileName) != null) {
+            throw new FileExistsException("File already exists! Please enter another filename");
+        }
+        Path target = layout.resolve(directory, fileName);
+        Files.createDirectories(target.getParent());
+        return target;
+    }
+
+    /**
+     * Whether the index of a directory can be trusted: it is not an indexed directory still waiting for
+     * its startup reconciliation
+     */
+    private boolean isReconciled(String path) {
+        return unreconciledDirectories.isEmpty() || !unreconciledDirectories.contains(fileIndex.key(path));
+    }
+
+    /**
+     * Names of the regular, non-hidden files directly in a directory; none if it does not exist
+     */
+    private List<String> fileNames(Path directory) {
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (!name.startsWith(".") && Files.isRegularFile(entry)) {
+                    names.add(name);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return List.of();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list " + directory, e);
+        }
+        return names;
+    }
+
+    /**
+     * Lazily lists the files of a directory on disk: first the top level, where files stored before the layout
+     * had levels stay until they are migrated, then the shard directories one at a time
+     */
+    private Stream<String> scanFiles(Path directory) {
+        Stream<String> topLevel = fileNames(directory).stream();
+        if (layout.levels() == 0) {
+            return topLevel;
+        }
+        return Stream.concat(topLevel, shardKeys(directory, "")
+                .flatMap(shard -> fileNames(directory.resolve(shard)).stream()));
+    }
+
+    /**
+     * Lazily enumerates, in order, the shard keys below prefix
+     */
+    private Stream<String> shardKeys(Path directory, String prefix) {
+        int depth = prefix.isEmpty() ? 0 : (prefix.length() + 1) / 3;
+        if (depth == layout.levels()) {
+            return Stream.of(prefix);
+        }
+        List<String> children = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (FileLayout.isShardName(name)) {
+                    children.add(name);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return Stream.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list " + directory, e);
+        }
+        Collections.sort(children);
+        return children.stream()
+                .map(child -> prefix.isEmpty() ? child : prefix + "/" + child)
+                .flatMap(key -> shardKeys(directory.resolve(key.substring(key.length() - 2)), key));
+    }
+
+    /**
+     * Indexes a fully written file and renames it into place in the same transaction;
+     * if the rename fails the entry is rolled back. Videos that need it are stored in their fast start form.
+     */
+    private void commit(String path, String fileName, Path written, Path target, String digest) throws IOException {
+        if (isFastStartCandidate(fileName)) {
+            Path copy = Files.createTempFile(target.getParent(), ".faststart-", ".tmp");
+            try {
+                String copyDigest = fastStart(written, copy, fileName);
+                if (copyDigest != null) {
+                    move(path, fileName, copy, target, copyDigest);
+                    return;
+                }
+            } finally {
+                Files.deleteIfExists(copy);
+            }
+        }
+        move(path, fileName, written, target, digest);
+    }
+
+    private void move(String path, String fileName, Path written, Path target, String digest) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(written, BasicFileAttributes.class);
+        fileIndex.add(path, fileName, attributes.size(), getContentType(fileName), digest, modifiedAt(attributes), () -> {
+            // ATOMIC_MOVE silently replaces an existing target on POSIX, so check again
+            if (Files.exists(target)) {
+                throw new FileExistsException("File already exists! Please enter another filename");
+            }
+            return Files.move(written, target, StandardCopyOption.ATOMIC_MOVE);
+        });
+        rememberDigest(target, digest);
+    }
+
+    /**
+     * Adds a stream to the content-addressed store of a directory. Videos are written out first, their moov
+     * box may come last and only then is it known whether they need rewriting for fast start.
      *
-     * @param path the path to normalize
-     * @return normalized path string
+     * @return true if the name is new to the store, false if it already held this content
      */
-    private String normalizePath(String path) {
-        return Paths.get(path).normalize().toString();
+    private boolean putBlob(String path, String fileName, InputStream content) throws IOException {
+        if (!isFastStartCandidate(fileName)) {
+            return store(path).put(fileName, content);
+        }
+        Path temp = Files.createTempFile(Paths.get(path), ".upload-", ".tmp");
+        try {
+            Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING);
+            return putBlobFile(path, fileName, temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Adds a written file to the content-addressed store of a directory, in its fast start form if it has one
+     *
+     * @return true if the name is new to the store, false if it already held this content
+     */
+    private boolean putBlobFile(String path, String fileName, Path source) throws IOException {
+        if (isFastStartCandidate(fileName)) {
+            Path copy = Files.createTempFile(Paths.get(path), ".faststart-", ".tmp");
+            try {
+                if (fastStart(source, copy, fileName) != null) {
+                    return store(path).putFile(fileName, copy);
+                }
+            } finally {
+                Files.deleteIfExists(copy);
+            }
+        }
+        return store(path).putFile(fileName, source);
+    }
+
+    private boolean isFastStartCandidate(String fileName) {
+        return fastStartEnabled && FastStart.EXTENSIONS.contains(getFileExtension(fileName).toLowerCase());
+    }
+
+    /**
+     * Writes a copy of a video with its trailing moov box moved to the front, hashing the copy on the way
+     *
+     * @param written  the stored video
+     * @param copy     file to write the copy to
+     * @param fileName name the video is stored under
+     * @return digest of the copy, or null when the video needs no rewrite and copy was left empty
+     */
+    private String fastStart(Path written, Path copy, String fileName) throws IOException {
+        MessageDigest digest = sha256();
+        try (FileChannel in = FileChannel.open(written, StandardOpenOption.READ);
+             OutputStream out = new DigestOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(copy), STREAM_BUFFER_SIZE), digest)) {
+            if (!FastStart.relocateMoov(in, out, fastStartMaxMoovSize.toBytes())) {
+                return null;
+            }
+        }
+        log.info("Moved the moov box of " + fileName + " to the front for fast start");
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Indexes a name just added to a content-addressed store, releasing it again if that fails. A name the
+     * store already held is rejected like any stored name, and left in place.
+     *
+     * @param added whether the store took the name as new
+     * @throws FileExistsException if the name was already stored
+     */
+    private void indexBlob(String path, String fileName, boolean added) throws IOException {
+        if (!added) {
+            throw new FileExistsException("File already exists! Please enter another filename");
+        }
+        ContentAddressedStore store = store(path);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(store.resolve(fileName), BasicFileAttributes.class);
+            fileIndex.add(path, fileName, attributes.size(), getContentType(fileName), store.digestOf(fileName),
+                    modifiedAt(attributes), () -> null);
+        } catch (IOException | RuntimeException e) {
+            store.release(fileName);
+            throw e;
+        }
+    }
+
+    /**
+     * Modification time as indexed; milliseconds survive the round trip through every database column type
+     */
+    private static Instant modifiedAt(BasicFileAttributes attributes) {
+        return attributes.lastModifiedTime().toInstant().truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    private static String hash(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void rememberDigest(Path file, String digest) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        digests.put(key, new FileDigest(Files.size(key), Files.getLastModifiedTime(key).toMillis(), digest));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private boolean isContentAddressed() {
+        return CONTENT_ADDRESSED_MODE.equalsIgnoreCase(storageMode);
+    }
+
+    /**
+     * Helper method to get the content-addressed store of a directory, opening it on first use
+     *
+     * @param path the upload directory
+     * @return the store of the directory
+     */
+    private ContentAddressedStore store(String path) {
+        Path directory = Paths.get(path).toAbsolutePath().normalize();
+        ContentAddressedStore store = stores.get(directory);
+        if (store != null) {
+            return store;
+        }
+        // Opened outside computeIfAbsent: its mapping function runs inside a synchronized block, and file I/O
+        // there would pin a virtual thread. Opening only reads, so a store opened by a losing racer is dropped.
+        try {
+            store = ContentAddressedStore.open(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open content store in " + directory, e);
+        }
+        ContentAddressedStore existing = stores.putIfAbsent(directory, store);
+        return existing != null ? existing : store;
     }
 
     /**
@@ -151,9 +957,68 @@ public class FileServiceImpl implements FileService {
      * @param fileName the file name to sanitize
      * @return sanitized file name
      */
-    private String sanitizeFileName(String fileName) {
+    String sanitizeFileName(String fileName) {
         return fileName.replaceAll("[^a-zA-Z0-9.-]", "_");
     }
 
+    private record FileDigest(long size, long modified, String digest) {
+    }
+
+    /**
+     * A name with its UTF-8 bytes, which order names as the binary collation of the index does (UTF-8 byte
+     * order is code point order). The bytes are encoded once per name, not once per comparison.
+     */
+    private record SortableName(String name, byte[] key) implements Comparable<SortableName> {
+
+        private SortableName(String name) {
+            this(name, name.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int compareTo(SortableName other) {
+            return Arrays.compareUnsigned(key, other.key);
+        }
+    }
+
+    /**
+     * Fails as soon as more than the allowed number of bytes has been read, so an oversized
+     * upload is abandoned at the limit instead of being written out first
+     */
+    private static final class SizeLimitedInputStream extends FilterInputStream {
+
+        private final String message;
+
+        private long remaining;
 
-}
\ No newline at end of file
+        private SizeLimitedInputStream(InputStream in, long limit, String message) {
+            super(in);
+            this.remaining = limit;
+            this.message = message;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) {
+                consumed(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                consumed(read);
+            }
+            return read;
+        }
+
+        private void consumed(int count) {
+            remaining -= count;
+            if (remaining < 0) {
+                throw new FileTooLargeException(message);
+            }
+        }
+    }
+}
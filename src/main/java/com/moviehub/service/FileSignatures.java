@@ -0,0 +1,87 @@
+package com.moviehub.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Checks the leading bytes of a file against the signature ("magic bytes") its extension implies,
+ * so a renamed executable or HTML page cannot be stored as an image or video.
+ */
+public final class FileSignatures {
+
+    /**
+     * Bytes needed to recognise every supported format
+     */
+    public static final int HEAD_LENGTH = 16;
+
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] EBML = {0x1A, 0x45, (byte) 0xDF, (byte) 0xA3};
+    private static final byte[] ASF = {0x30, 0x26, (byte) 0xB2, 0x75, (byte) 0x8E, 0x66, (byte) 0xCF, 0x11};
+    private static final byte[] GIF87A = ascii("GIF87a");
+    private static final byte[] GIF89A = ascii("GIF89a");
+    private static final byte[] RIFF = ascii("RIFF");
+    private static final byte[] WEBP = ascii("WEBP");
+    private static final byte[] AVI = ascii("AVI ");
+    private static final byte[] BMP = ascii("BM");
+    private static final byte[] FLV = ascii("FLV");
+    private static final byte[] FTYP = ascii("ftyp");
+    private static final byte[][] QUICKTIME_ATOMS = {FTYP, ascii("moov"), ascii("mdat"), ascii("wide"), ascii("free"), ascii("skip")};
+
+    private FileSignatures() {
+    }
+
+    /**
+     * @param extension file extension, without the dot
+     * @param head      first bytes of the file
+     * @param length    number of valid bytes in head
+     * @return true if the bytes match the format of the extension; false for unknown extensions
+     */
+    public static boolean matches(String extension, byte[] head, int length) {
+        return switch (extension.toLowerCase(Locale.ROOT)) {
+            case "jpg", "jpeg" -> startsWith(head, length, 0, JPEG);
+            case "png" -> startsWith(head, length, 0, PNG);
+            case "gif" -> startsWith(head, length, 0, GIF87A) || startsWith(head, length, 0, GIF89A);
+            case "webp" -> riff(head, length, WEBP);
+            case "bmp" -> startsWith(head, length, 0, BMP);
+            case "avi" -> riff(head, length, AVI);
+            case "mkv", "webm" -> startsWith(head, length, 0, EBML);
+            case "wmv" -> startsWith(head, length, 0, ASF);
+            case "flv" -> startsWith(head, length, 0, FLV);
+            // ISO base media files open with a box whose type follows its 4 byte size
+            case "mp4", "m4v", "3gp" -> startsWith(head, length, 4, FTYP);
+            // Older QuickTime files may open with a movie, media data or padding atom instead of ftyp
+            case "mov" -> quickTime(head, length);
+            default -> false;
+        };
+    }
+
+    private static boolean quickTime(byte[] head, int length) {
+        for (byte[] atom : QUICKTIME_ATOMS) {
+            if (startsWith(head, length, 4, atom)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean riff(byte[] head, int length, byte[] form) {
+        return startsWith(head, length, 0, RIFF) && startsWith(head, length, 8, form);
+    }
+
+    private static boolean startsWith(byte[] head, int length, int offset, byte[] signature) {
+        if (length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (head[offset + i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,80 @@
+package com.moviehub.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Byte counters, transfer sizes and throughput of file uploads and downloads.
+ * Sizes and throughput publish histogram buckets so percentiles can be computed in Prometheus.
+ */
+@Component
+public class FileTransferMetrics {
+
+    private final Transfer upload;
+
+    private final Transfer download;
+
+    public FileTransferMetrics(MeterRegistry meterRegistry) {
+        this.upload = new Transfer(meterRegistry, "upload");
+        this.download = new Transfer(meterRegistry, "download");
+    }
+
+    /**
+     * @param bytes bytes received
+     * @param nanos time spent storing the file
+     */
+    public void recordUpload(long bytes, long nanos) {
+        upload.record(bytes, nanos);
+    }
+
+    /**
+     * @param bytes bytes sent, fewer than requested when the client went away; for a file handed to the
+     *              connector's sendfile, the bytes requested
+     * @param nanos time spent writing the response body, 0 when unknown, which leaves throughput unrecorded
+     */
+    public void recordDownload(long bytes, long nanos) {
+        download.record(bytes, nanos);
+    }
+
+    private static final class Transfer {
+
+        private final Counter bytes;
+
+        private final DistributionSummary size;
+
+        private final DistributionSummary throughput;
+
+        private Transfer(MeterRegistry meterRegistry, String direction) {
+            this.bytes = Counter.builder("file." + direction + ".bytes")
+                    .description("Total bytes of file " + direction + "s")
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+            this.size = DistributionSummary.builder("file." + direction + ".size")
+                    .description("Size of a single file " + direction)
+                    .baseUnit("bytes")
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(1024d)
+                    .maximumExpectedValue(1024d * 1024 * 1024)
+                    .register(meterRegistry);
+            this.throughput = DistributionSummary.builder("file." + direction + ".throughput")
+                    .description("Transfer rate of a single file " + direction)
+                    .baseUnit("bytes.per.second")
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(1024d)
+                    .maximumExpectedValue(10d * 1024 * 1024 * 1024)
+                    .register(meterRegistry);
+        }
+
+        private void record(long transferred, long nanos) {
+            bytes.increment(transferred);
+            size.record(transferred);
+            if (transferred > 0 && nanos > 0) {
+                throughput.record(transferred * (double) TimeUnit.SECONDS.toNanos(1) / nanos);
+            }
+        }
+    }
+}
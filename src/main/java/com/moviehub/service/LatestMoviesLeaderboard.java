@@ -0,0 +1,162 @@
+package com.moviehub.service;
+
+import com.moviehub.dto.MovieDTO;
+import com.moviehub.repository.MovieRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The newest movies by release year (ties: the most recently added first), kept in memory so the latest
+ * movies are served without a query. The leaderboard holds up to movie.latest.capacity movies and is loaded
+ * from the database on first use; writes then keep it up to date. It always holds the newest movies of the
+ * whole catalog, so deletes shrink it; once a read asks for more movies than it still holds, it is loaded again.
+ * Reads never return more than the capacity, so the database is never asked for more than that either.
+ */
+@Component
+public class LatestMoviesLeaderboard {
+
+    private static final Comparator<MovieDTO> NEWEST_FIRST = Comparator
+            .comparing(MovieDTO::getReleaseYear, Comparator.reverseOrder())
+            .thenComparing(MovieDTO::getMovieId, Comparator.reverseOrder());
+
+    private final MovieRepository movieRepository;
+
+    private final MovieMapper movieMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${movie.latest.capacity:100}")
+    private int capacity = 100;
+
+    /**
+     * Guarded by this, like the fields below: the newest movies, the first {@code ranked.size()} of the catalog
+     */
+    private final TreeSet<MovieDTO> ranked = new TreeSet<>(NEWEST_FIRST);
+
+    private final Map<Long, MovieDTO> members = new HashMap<>();
+
+    private boolean loaded;
+
+    /**
+     * Whether the leaderboard holds every movie, so movies ranked below the last one still belong in it
+     */
+    private boolean wholeCatalog;
+
+    /**
+     * Counts changes, so a load that raced with a write is not installed
+     */
+    private long generation;
+
+    public LatestMoviesLeaderboard(MovieRepository movieRepository, MovieMapper movieMapper,
+                                   PlatformTransactionManager transactionManager) {
+        this.movieRepository = movieRepository;
+        this.movieMapper = movieMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * @param limit number of movies to return, lowered to the capacity of the leaderboard
+     * @return the newest movies, newest first
+     */
+    public List<MovieDTO> latest(int limit) {
+        int wanted = Math.min(limit, capacity);
+        if (wanted < 1) {
+            return List.of();
+        }
+        long seen;
+        synchronized (this) {
+            if (loaded && (wanted <= ranked.size() || wholeCatalog)) {
+                return ranked.stream().limit(wanted).toList();
+            }
+            seen = generation;
+        }
+
+        List<MovieDTO> newest = load(capacity);
+        synchronized (this) {
+            if (generation == seen) {
+                ranked.clear();
+                members.clear();
+                for (MovieDTO movie : newest) {
+                    ranked.add(movie);
+                    members.put(movie.getMovieId(), movie);
+                }
+                wholeCatalog = newest.size() < capacity;
+                loaded = true;
+            }
+        }
+        return newest.subList(0, Math.min(wanted, newest.size()));
+    }
+
+    /**
+     * Records an added or updated movie once the current transaction commits
+     */
+    public void put(MovieDTO movie) {
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (this) {
+                generation++;
+                MovieDTO previous = members.remove(movie.getMovieId());
+                if (previous != null) {
+                    ranked.remove(previous);
+                }
+                // Anything ranked below the last movie held may be behind movies that are not held
+                if (!loaded || !wholeCatalog && (ranked.isEmpty() || NEWEST_FIRST.compare(movie, ranked.last()) > 0)) {
+                    return;
+                }
+                ranked.add(movie);
+                members.put(movie.getMovieId(), movie);
+                if (ranked.size() > capacity) {
+                    members.remove(ranked.pollLast().getMovieId());
+                    wholeCatalog = false;
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops a deleted movie once the current transaction commits
+     */
+    public void remove(Long movieId) {
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (this) {
+                generation++;
+                MovieDTO previous = members.remove(movieId);
+                if (previous != null) {
+                    ranked.remove(previous);
+                }
+            }
+        });
+    }
+
+    /**
+     * Forgets the leaderboard after writes that bypass {@link #put(MovieDTO)}, such as bulk imports;
+     * the next read loads it again
+     */
+    public synchronized void reset() {
+        generation++;
+        loaded = false;
+        ranked.clear();
+        members.clear();
+    }
+
+    /**
+     * Reads the newest movies in a read-write transaction, which keeps the load on the primary: loaded from
+     * a lagging replica, the leaderboard would miss a movie whose write has already been applied to it
+     */
+    private List<MovieDTO> load(int limit) {
+        return transactionTemplate.execute(status -> {
+            List<Long> movieIds = movieRepository.findLatestMovieIds(Limit.of(limit));
+            return movieIds.isEmpty()
+                    ? List.of()
+                    : movieMapper.toDTOs(movieRepository.findRowsByMovieIdIn(movieIds), movieIds);
+        });
+    }
+}
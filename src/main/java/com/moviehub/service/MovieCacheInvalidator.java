@@ -0,0 +1,80 @@
+package com.moviehub.service;
+
+import com.moviehub.configuration.CacheConfiguration;
+import com.moviehub.dto.MovieDTO;
+import com.moviehub.dto.MoviePageResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Evicts cached pages affected by a movie write.
+ * By-id entries are evicted declaratively on the service methods; pages need a look at their
+ * content, so only the pages a write can actually change are dropped.
+ * Replicas may not have the write yet, so for the expected replication lag after an eviction
+ * (movie.cache.replication-lag) caches are refilled from the primary, see {@link #isWithinReplicationLag()}.
+ */
+@Component
+@RequiredArgsConstructor
+public class MovieCacheInvalidator {
+
+    private final CacheManager cacheManager;
+
+    @Value("${movie.cache.replication-lag:${datasource.read-your-writes:PT5S}}")
+    private Duration replicationLag = Duration.ofSeconds(5);
+
+    private volatile long lastEvictionNanos = System.nanoTime() - Long.MAX_VALUE / 2;
+
+    /**
+     * Inserts and deletes shift every page and change the totals, so all pages go
+     */
+    public void evictAllPages() {
+        evicted();
+        pages().clear();
+    }
+
+    /**
+     * An update changes the pages containing the movie, and pages sorted by a field the update may have
+     * changed since the movie can move between them; pages ordered by id without the movie stay valid
+     *
+     * @param movieId the updated movie
+     */
+    public void evictPagesAffectedBy(Long movieId) {
+        evicted();
+        pages().entrySet().removeIf(entry -> {
+            MoviePageKey key = (MoviePageKey) entry.getKey();
+            return key.isOrderedByMutableField() || contains((MoviePageResponse) entry.getValue(), movieId);
+        });
+    }
+
+    /**
+     * Whether an eviction happened within the replication lag; a cache filled from a replica now could be
+     * refilled with the data just evicted, and would keep serving it for the whole TTL
+     */
+    public boolean isWithinReplicationLag() {
+        return System.nanoTime() - lastEvictionNanos < replicationLag.toNanos();
+    }
+
+    private void evicted() {
+        lastEvictionNanos = System.nanoTime();
+    }
+
+    private boolean contains(MoviePageResponse page, Long movieId) {
+        for (MovieDTO movie : page.movieDTOS()) {
+            if (movieId.equals(movie.getMovieId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<Object, Object> pages() {
+        CaffeineCache cache = (CaffeineCache) cacheManager.getCache(CacheConfiguration.MOVIE_PAGES_CACHE);
+        return cache.getNativeCache().asMap();
+    }
+}
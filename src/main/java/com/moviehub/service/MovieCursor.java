@@ -0,0 +1,68 @@
+package com.moviehub.service;
+
+import com.moviehub.exception.InvalidCursorException;
+import com.moviehub.repository.MovieRepositoryCustom;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Continuation token of keyset pagination: the sort order and the (sort key, movie id) of the last
+ * movie returned. It is handed to clients as URL-safe Base64 and is opaque to them.
+ *
+ * @param sortBy        sort property
+ * @param direction     sort direction
+ * @param lastSortValue sort key of the last movie returned
+ * @param lastMovieId   id of the last movie returned
+ */
+public record MovieCursor(String sortBy, Sort.Direction direction, Object lastSortValue, Long lastMovieId) {
+
+    private static final String SEPARATOR = "\u0000";
+
+    public String encode() {
+        String raw = String.join(SEPARATOR, sortBy, direction.name(), String.valueOf(lastSortValue), String.valueOf(lastMovieId));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MovieCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, -1);
+            if (parts.length != 4) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+            String sortBy = validateSortBy(parts[0]);
+            return new MovieCursor(sortBy, Sort.Direction.valueOf(parts[1]),
+                    parseSortValue(sortBy, parts[2]), Long.valueOf(parts[3]));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+
+    public static String validateSortBy(String sortBy) {
+        if (!MovieRepositoryCustom.SORTABLE_PROPERTIES.contains(sortBy)) {
+            throw new InvalidCursorException("Unsupported sort property: " + sortBy
+                    + ". Supported properties: " + MovieRepositoryCustom.SORTABLE_PROPERTIES);
+        }
+        return sortBy;
+    }
+
+    public static Sort.Direction validateDirection(String direction) {
+        if ("asc".equalsIgnoreCase(direction)) {
+            return Sort.Direction.ASC;
+        }
+        if ("desc".equalsIgnoreCase(direction)) {
+            return Sort.Direction.DESC;
+        }
+        throw new InvalidCursorException("Unsupported sort direction: " + direction + ". Supported directions: [asc, desc]");
+    }
+
+    private static Object parseSortValue(String sortBy, String value) {
+        return switch (sortBy) {
+            case "movieId" -> Long.valueOf(value);
+            case "releaseYear" -> Integer.valueOf(value);
+            default -> value;
+        };
+    }
+}
@@ -0,0 +1,202 @@
+package com.moviehub.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moviehub.dto.MovieDTO;
+import com.moviehub.exception.InvalidImportException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads an import file one row at a time, so the file is never held in memory.
+ * <p>
+ * CSV files need a header naming the columns title, director, studio, releaseYear, poster and
+ * optionally movieCast, with actors separated by {@code |}. JSONL files hold one MovieDTO object per line.
+ * A row that cannot be parsed is returned with an error instead of stopping the import.
+ */
+final class MovieImportReader implements Closeable {
+
+    private static final List<String> REQUIRED_COLUMNS = List.of("title", "director", "studio", "releaseyear", "poster");
+
+    private final BufferedReader reader;
+
+    private final boolean csv;
+
+    private final ObjectMapper objectMapper;
+
+    private Map<String, Integer> columns;
+
+    private long rowNumber;
+
+    private MovieImportReader(InputStream in, boolean csv, ObjectMapper objectMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.csv = csv;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param in           the import file
+     * @param fileName     name of the file, its extension selects the format
+     * @param objectMapper mapper for JSONL rows
+     * @throws InvalidImportException if the format is not supported or the CSV header is invalid
+     */
+    static MovieImportReader open(InputStream in, String fileName, ObjectMapper objectMapper) throws IOException {
+        String name = fileName == null ? "" : fileName.toLowerCase(Locale.ROOT);
+        MovieImportReader importReader;
+        if (name.endsWith(".csv")) {
+            importReader = new MovieImportReader(in, true, objectMapper);
+            importReader.readHeader();
+        } else if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+            importReader = new MovieImportReader(in, false, objectMapper);
+        } else {
+            throw new InvalidImportException("Unsupported import file: " + fileName + ", expected .csv or .jsonl");
+        }
+        return importReader;
+    }
+
+    /**
+     * @return the next row, or null at the end of the file
+     */
+    Row next() throws IOException {
+        return csv ? nextCsvRow() : nextJsonRow();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readHeader() throws IOException {
+        List<String> header = readRecord();
+        if (header == null) {
+            throw new InvalidImportException("The import file is empty");
+        }
+        columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).strip().toLowerCase(Locale.ROOT), i);
+        }
+        for (String column : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(column)) {
+                throw new InvalidImportException("The CSV header has no " + column + " column");
+            }
+        }
+    }
+
+    private Row nextCsvRow() throws IOException {
+        List<String> record;
+        do {
+            record = readRecord();
+            if (record == null) {
+                return null;
+            }
+            rowNumber++;
+        } while (record.size() == 1 && record.get(0).isBlank());
+
+        MovieDTO movie = new MovieDTO();
+        movie.setTitle(column(record, "title"));
+        movie.setDirector(column(record, "director"));
+        movie.setStudio(column(record, "studio"));
+        movie.setPoster(column(record, "poster"));
+        String cast = column(record, "moviecast");
+        movie.setMovieCast(new LinkedHashSet<>());
+        if (cast != null) {
+            Arrays.stream(cast.split("\\|")).map(String::strip).filter(actor -> !actor.isEmpty())
+                    .forEach(movie.getMovieCast()::add);
+        }
+        String releaseYear = column(record, "releaseyear");
+        if (releaseYear != null) {
+            try {
+                movie.setReleaseYear(Integer.valueOf(releaseYear));
+            } catch (NumberFormatException e) {
+                return new Row(rowNumber, movie, "Invalid releaseYear: " + releaseYear);
+            }
+        }
+        return new Row(rowNumber, movie, null);
+    }
+
+    private Row nextJsonRow() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            rowNumber++;
+        } while (line.isBlank());
+
+        try {
+            return new Row(rowNumber, objectMapper.readValue(line, MovieDTO.class), null);
+        } catch (JsonProcessingException e) {
+            return new Row(rowNumber, null, "Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private String column(List<String> record, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).strip();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Reads one RFC 4180 record; quoted fields may contain commas, line breaks and doubled quotes
+     *
+     * @return the fields, or null at the end of the file
+     */
+    private List<String> readRecord() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * A parsed row; movie is null or error is set when the row could not be parsed
+     */
+    record Row(long number, MovieDTO movie, String error) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.moviehub.service;
+
+import com.moviehub.dto.MovieImportResult;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+/**
+ * Service interface for importing many movies at once
+ */
+public interface MovieImportService {
+
+    /**
+     * Imports the movies of a CSV or JSONL file. Rows are inserted in JDBC batches; a row that fails
+     * is reported in the result and does not stop the import.
+     *
+     * @param file    CSV or JSONL file of movies
+     * @param posters optional ZIP archive with the posters named by the rows; rows whose poster is not in
+     *                the archive must name a poster that is already stored
+     * @return counts and per-row errors
+     * @throws IOException if the files cannot be read
+     * @throws com.moviehub.exception.InvalidImportException if the file format or CSV header is invalid
+     */
+    MovieImportResult importMovies(MultipartFile file, MultipartFile posters) throws IOException;
+}
@@ -0,0 +1,341 @@
+package com.moviehub.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moviehub.dto.MovieDTO;
+import com.moviehub.dto.MovieImportError;
+import com.moviehub.dto.MovieImportResult;
+import com.moviehub.entity.Movie;
+import com.moviehub.exception.EmptyFileException;
+import com.moviehub.exception.FileTooLargeException;
+import jakarta.persistence.EntityManager;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Implementation of MovieImportService. Rows are streamed from the file, validated and collected into
+ * batches; each batch is persisted and flushed in its own transaction so Hibernate sends the movies and
+ * movie_cast rows as JDBC batches. When a batch fails its rows are retried one by one to find the bad ones.
+ */
+@Service
+@Log4j2
+public class MovieImportServiceImpl implements MovieImportService {
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final FileService fileService;
+
+    private final PosterVariantService posterVariantService;
+
+    private final MovieSearchService movieSearchService;
+
+    private final MovieCacheInvalidator movieCacheInvalidator;
+
+    private final LatestMoviesLeaderboard latestMovies;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${project.poster}")
+    private String path;
+
+    @Value("${movie.import.batch-size:50}")
+    private int batchSize;
+
+    @Value("${movie.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    @Value("${file.max.size:524288000}")
+    private long maxFileSize;
+
+    @Value("${file.allowed.image.extensions}")
+    private List<String> allowedImageExtensions;
+
+    public MovieImportServiceImpl(EntityManager entityManager, PlatformTransactionManager transactionManager,
+                                  FileService fileService, PosterVariantService posterVariantService,
+                                  MovieSearchService movieSearchService, MovieCacheInvalidator movieCacheInvalidator,
+                                  LatestMoviesLeaderboard latestMovies, ObjectMapper objectMapper) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.fileService = fileService;
+        this.posterVariantService = posterVariantService;
+        this.movieSearchService = movieSearchService;
+        this.movieCacheInvalidator = movieCacheInvalidator;
+        this.latestMovies = latestMovies;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public MovieImportResult importMovies(MultipartFile file, MultipartFile posters) throws IOException {
+
+        if (file == null || file.isEmpty()) {
+            throw new EmptyFileException("File is empty! Please select a file!");
+        }
+
+        long start = System.nanoTime();
+        Report report = new Report();
+        Path archive = null;
+        ZipFile zip = null;
+        try {
+            Map<String, ZipEntry> posterEntries = Map.of();
+            if (posters != null && !posters.isEmpty()) {
+                archive = Files.createTempFile("movie-import-", ".zip");
+                posters.transferTo(archive);
+                zip = new ZipFile(archive.toFile());
+                posterEntries = indexEntries(zip);
+            }
+
+            try (MovieImportReader reader = MovieImportReader.open(file.getInputStream(), file.getOriginalFilename(), objectMapper)) {
+                List<PendingRow> batch = new ArrayList<>(batchSize);
+                MovieImportReader.Row row;
+                while ((row = reader.next()) != null) {
+                    report.totalRows++;
+                    String error = row.error() != null ? row.error() : validate(row.movie());
+                    if (error != null) {
+                        report.fail(row.number(), row.movie() == null ? null : row.movie().getTitle(), error);
+                        continue;
+                    }
+
+                    PendingRow pending;
+                    try {
+                        pending = resolvePoster(row, zip, posterEntries, report);
+                    } catch (IOException | RuntimeException e) {
+                        report.fail(row.number(), row.movie().getTitle(), e.getMessage());
+                        continue;
+                    }
+
+                    batch.add(pending);
+                    if (batch.size() == batchSize) {
+                        insert(batch, report);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    insert(batch, report);
+                }
+            }
+        } finally {
+            if (zip != null) {
+                zip.close();
+            }
+            if (archive != null) {
+                Files.deleteIfExists(archive);
+            }
+            // Posters extracted for rows that all failed to save are not referenced by any movie
+            report.storedPosters.forEach(this::deletePoster);
+            if (report.imported > 0) {
+                movieCacheInvalidator.evictAllPages();
+                latestMovies.reset();
+            }
+        }
+
+        long durationMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Imported " + report.imported + " of " + report.totalRows + " movies from " + file.getOriginalFilename()
+                + " in " + durationMillis + " ms, " + report.failed + " rows failed");
+        return new MovieImportResult(report.totalRows, report.imported, report.failed, report.errors,
+                report.failed > report.errors.size(), durationMillis);
+    }
+
+    /**
+     * Inserts a batch in one transaction; if it fails, inserts its rows one at a time to isolate the failing ones
+     */
+    private void insert(List<PendingRow> batch, Report report) {
+        List<Movie> saved;
+        try {
+            saved = transactionTemplate.execute(status -> persist(batch));
+        } catch (RuntimeException e) {
+            if (batch.size() > 1) {
+                log.warn("Import batch of " + batch.size() + " rows failed, retrying row by row: " + e.getMessage());
+                for (PendingRow row : batch) {
+                    insert(List.of(row), report);
+                }
+                return;
+            }
+            PendingRow row = batch.get(0);
+            report.fail(row.number(), row.movie().getTitle(), "Could not save movie: " + rootMessage(e));
+            return;
+        }
+
+        for (Movie movie : saved) {
+            movieSearchService.indexMovie(movie.getMovieId(), movie.getTitle(), movie.getDirector(),
+                    movie.getStudio(), movie.getMovieCast());
+            if (report.storedPosters.remove(movie.getPoster())) {
+                posterVariantService.generateVariantsAsync(path, movie.getPoster());
+            }
+        }
+        report.imported += saved.size();
+    }
+
+    private List<Movie> persist(List<PendingRow> batch) {
+        List<Movie> movies = new ArrayList<>(batch.size());
+        for (PendingRow row : batch) {
+            MovieDTO movieDTO = row.movie();
+            Movie movie = new Movie();
+            movie.setTitle(movieDTO.getTitle());
+            movie.setDirector(movieDTO.getDirector());
+            movie.setStudio(movieDTO.getStudio());
+            movie.setMovieCast(movieDTO.getMovieCast() == null ? new HashSet<>() : new HashSet<>(movieDTO.getMovieCast()));
+            movie.setReleaseYear(movieDTO.getReleaseYear());
+            movie.setPoster(movieDTO.getPoster());
+            entityManager.persist(movie);
+            movies.add(movie);
+        }
+        // Flushing sends the batch; clearing keeps the persistence context from growing with the import
+        entityManager.flush();
+        entityManager.clear();
+        return movies;
+    }
+
+    private String validate(MovieDTO movie) {
+        if (isBlank(movie.getTitle())) {
+            return "Movie title is required";
+        }
+        if (movie.getTitle().length() > 200) {
+            return "Movie title is longer than 200 characters";
+        }
+        if (isBlank(movie.getDirector())) {
+            return "Director name is required";
+        }
+        if (isBlank(movie.getStudio())) {
+            return "Studio is required";
+        }
+        if (movie.getReleaseYear() == null) {
+            return "Release date is required";
+        }
+        if (isBlank(movie.getPoster())) {
+            return "Movie poster is required";
+        }
+        return null;
+    }
+
+    /**
+     * Stores the row's poster from the archive, or checks that an already stored poster exists.
+     * An archive entry is stored once, rows naming the same entry share the stored poster.
+     * Entries are held to file.max.size while they are decompressed and must start with the signature
+     * of their image type, so a zip bomb or a mislabelled file fails its row instead of being stored.
+     */
+    private PendingRow resolvePoster(MovieImportReader.Row row, ZipFile zip, Map<String, ZipEntry> posterEntries,
+                                     Report report) throws IOException {
+        MovieDTO movie = row.movie();
+        String storedName = report.extractedPosters.get(movie.getPoster());
+        if (storedName != null) {
+            movie.setPoster(storedName);
+            return new PendingRow(row.number(), movie);
+        }
+        ZipEntry entry = posterEntries.get(movie.getPoster());
+        if (entry == null) {
+            if (!fileService.fileExists(path + File.separator + movie.getPoster())) {
+                throw new EmptyFileException("Poster not found: " + movie.getPoster());
+            }
+            return new PendingRow(row.number(), movie);
+        }
+
+        String extension = extension(movie.getPoster());
+        if (!allowedImageExtensions.contains(extension)) {
+            throw new EmptyFileException("Poster must be one of " + allowedImageExtensions + ": " + movie.getPoster());
+        }
+
+        // The declared size is only a hint, storeStream stops copying once the entry grows past the limit
+        if (entry.getSize() > maxFileSize) {
+            throw new FileTooLargeException("Poster exceeds the limit of " + maxFileSize + " bytes: " + movie.getPoster());
+        }
+        // Checked against the signature of its extension before anything is written
+        try (InputStream in = zip.getInputStream(entry)) {
+            storedName = fileService.storeStream(path, in, movie.getPoster(), maxFileSize);
+        }
+        report.extractedPosters.put(movie.getPoster(), storedName);
+        report.storedPosters.add(storedName);
+        movie.setPoster(storedName);
+        return new PendingRow(row.number(), movie);
+    }
+
+    private Map<String, ZipEntry> indexEntries(ZipFile zip) {
+        Map<String, ZipEntry> entries = new HashMap<>();
+        Enumeration<? extends ZipEntry> enumeration = zip.entries();
+        while (enumeration.hasMoreElements()) {
+            ZipEntry entry = enumeration.nextElement();
+            if (!entry.isDirectory()) {
+                // Only the base name is used, so entries cannot point outside the poster directory
+                String name = entry.getName();
+                entries.put(name.substring(name.lastIndexOf('/') + 1), entry);
+            }
+        }
+        return entries;
+    }
+
+    private void deletePoster(String poster) {
+        try {
+            fileService.deleteFile(path + File.separator + poster);
+        } catch (IOException e) {
+            log.warn("Could not delete poster " + poster + " of a failed import row: " + e.getMessage());
+        }
+    }
+
+    private String extension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    private record PendingRow(long number, MovieDTO movie) {
+    }
+
+    private class Report {
+
+        private long totalRows;
+
+        private long imported;
+
+        private long failed;
+
+        private final List<MovieImportError> errors = new ArrayList<>();
+
+        /**
+         * Stored name of every archive entry extracted so far
+         */
+        private final Map<String, String> extractedPosters = new HashMap<>();
+
+        /**
+         * Extracted posters not yet referenced by a saved movie
+         */
+        private final Set<String> storedPosters = new HashSet<>();
+
+        private void fail(long row, String title, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new MovieImportError(row, title, message));
+            }
+        }
+    }
+}
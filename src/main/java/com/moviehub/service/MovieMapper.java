@@ -0,0 +1,122 @@
+package com.moviehub.service;
+
+import com.moviehub.dto.MovieDTO;
+import com.moviehub.dto.MovieRow;
+import com.moviehub.entity.Movie;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The one place where movies become MovieDTOs, either from an entity after a write or from the
+ * MovieRow projections of the read path.
+ */
+@Component
+public class MovieMapper {
+
+    @Value("${base.url}")
+    private String baseUrl;
+
+    public MovieDTO toDTO(Movie movie) {
+        MovieDTO movieDTO = newDTO(movie.getMovieId(), movie.getTitle(), movie.getDirector(), movie.getStudio(),
+                movie.getReleaseYear(), movie.getPoster());
+        if (movie.getMovieCast() != null) {
+            movieDTO.getMovieCast().addAll(movie.getMovieCast());
+        }
+        return movieDTO;
+    }
+
+    /**
+     * Folds the rows of each movie into one MovieDTO
+     *
+     * @param rows movie rows, in any order
+     * @return one movie per id, in order of first appearance
+     */
+    public List<MovieDTO> toDTOs(List<MovieRow> rows) {
+        Map<Long, MovieDTO> movies = new LinkedHashMap<>();
+        for (MovieRow row : rows) {
+            MovieDTO movieDTO = movies.get(row.movieId());
+            if (movieDTO == null) {
+                movieDTO = newDTO(row);
+                movies.put(row.movieId(), movieDTO);
+            }
+            addActor(movieDTO, row);
+        }
+        return new ArrayList<>(movies.values());
+    }
+
+    /**
+     * Folds the rows of each movie into one MovieDTO and puts the movies in the given order
+     *
+     * @param rows     movie rows, in any order
+     * @param movieIds the order of the result; ids without rows are skipped
+     * @return the movies in the order of movieIds
+     */
+    public List<MovieDTO> toDTOs(List<MovieRow> rows, List<Long> movieIds) {
+        Map<Long, MovieDTO> movies = new LinkedHashMap<>();
+        for (MovieDTO movieDTO : toDTOs(rows)) {
+            movies.put(movieDTO.getMovieId(), movieDTO);
+        }
+        List<MovieDTO> ordered = new ArrayList<>(movieIds.size());
+        for (Long movieId : movieIds) {
+            MovieDTO movieDTO = movies.get(movieId);
+            if (movieDTO != null) {
+                ordered.add(movieDTO);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Folds a stream of rows into movies as it is read, holding one movie at a time
+     *
+     * @param rows     movie rows, with the rows of each movie consecutive
+     * @param consumer receives every complete movie
+     */
+    public void forEachMovie(Iterator<MovieRow> rows, Consumer<MovieDTO> consumer) {
+        MovieDTO current = null;
+        while (rows.hasNext()) {
+            MovieRow row = rows.next();
+            if (current == null || !current.getMovieId().equals(row.movieId())) {
+                if (current != null) {
+                    consumer.accept(current);
+                }
+                current = newDTO(row);
+            }
+            addActor(current, row);
+        }
+        if (current != null) {
+            consumer.accept(current);
+        }
+    }
+
+    private MovieDTO newDTO(MovieRow row) {
+        return newDTO(row.movieId(), row.title(), row.director(), row.studio(), row.releaseYear(), row.poster());
+    }
+
+    private MovieDTO newDTO(Long movieId, String title, String director, String studio, Integer releaseYear, String poster) {
+        MovieDTO movieDTO = new MovieDTO();
+        movieDTO.setMovieId(movieId);
+        movieDTO.setTitle(title);
+        movieDTO.setDirector(director);
+        movieDTO.setStudio(studio);
+        movieDTO.setMovieCast(new HashSet<>());
+        movieDTO.setReleaseYear(releaseYear);
+        movieDTO.setPoster(poster);
+        movieDTO.setPosterUrl(baseUrl + "/file/" + poster);
+        return movieDTO;
+    }
+
+    private void addActor(MovieDTO movieDTO, MovieRow row) {
+        if (row.actor() != null) {
+            movieDTO.getMovieCast().add(row.actor());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.moviehub.service;
+
+/**
+ * Cache key of a page of movies.
+ *
+ * @param pageNumber zero based page number
+ * @param pageSize   number of movies per page
+ * @param sortBy     sort property, or null for the unsorted pagination
+ * @param direction  sort direction, or null for the unsorted pagination
+ */
+public record MoviePageKey(int pageNumber, int pageSize, String sortBy, String direction) {
+
+    /**
+     * @return true when an update to any movie may move it onto or off this page
+     */
+    public boolean isOrderedByMutableField() {
+        return sortBy != null && !sortBy.equals("movieId");
+    }
+}
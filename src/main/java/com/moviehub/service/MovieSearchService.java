@@ -0,0 +1,64 @@
+package com.moviehub.service;
+
+import com.moviehub.search.CoStar;
+import com.moviehub.search.SearchHit;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Service interface for full-text search over title, director, studio and cast and for actor lookups,
+ * backed by in-memory indexes kept in step with movie writes.
+ */
+public interface MovieSearchService {
+
+    /**
+     * Searches the index
+     *
+     * @param query    free text query
+     * @param matchAll true to require every term, false to match any term
+     * @param limit    maximum number of hits
+     * @return hits ordered by decreasing relevance
+     */
+    List<SearchHit> search(String query, boolean matchAll, int limit);
+
+    /**
+     * Finds the movies featuring all the given actors
+     *
+     * @param actors actor names, matched regardless of case, accents and spacing
+     * @return ascending movie ids
+     */
+    long[] findMoviesWithActors(List<String> actors);
+
+    /**
+     * Finds the actors who appeared alongside the given actor
+     *
+     * @param actor actor name
+     * @param limit maximum number of co-stars
+     * @return co-stars ordered by decreasing number of shared movies
+     */
+    List<CoStar> findCoStars(String actor, int limit);
+
+    /**
+     * Adds or replaces a movie in the index
+     *
+     * @param movieId   the movie id
+     * @param title     the title
+     * @param director  the director
+     * @param studio    the studio
+     * @param movieCast the cast
+     */
+    void indexMovie(Long movieId, String title, String director, String studio, Set<String> movieCast);
+
+    /**
+     * Removes a movie from the index
+     *
+     * @param movieId the movie id
+     */
+    void removeMovie(Long movieId);
+
+    /**
+     * Rebuilds the index from the database; searches keep using the old index until the new one is ready
+     */
+    void rebuild();
+}
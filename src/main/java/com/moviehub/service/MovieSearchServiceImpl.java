@@ -0,0 +1,210 @@
+package com.moviehub.service;
+
+import com.moviehub.dto.MovieDTO;
+import com.moviehub.repository.MovieRepository;
+import com.moviehub.search.ActorIndex;
+import com.moviehub.search.CoStar;
+import com.moviehub.search.InvertedIndex;
+import com.moviehub.search.SearchHit;
+import com.moviehub.search.TextAnalyzer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of MovieSearchService. The full-text and actor indexes are maintained together: lookups
+ * run concurrently under a read lock and writes take the write lock. A rebuild fills fresh indexes without
+ * holding the lock; writes that happen meanwhile are replayed onto them before they replace the live ones.
+ */
+@Service
+@Log4j2
+public class MovieSearchServiceImpl implements MovieSearchService {
+
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float CAST_WEIGHT = 2.0f;
+    private static final float DIRECTOR_WEIGHT = 1.5f;
+    private static final float STUDIO_WEIGHT = 1.0f;
+
+    private final MovieRepository movieRepository;
+
+    private final MovieMapper movieMapper;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Indexes indexes = new Indexes();
+
+    /**
+     * Writes made while a rebuild is running, null when no rebuild is in progress
+     */
+    private List<Consumer<Indexes>> pendingWrites;
+
+    @Value("${movie.search.rebuild-page-size:1000}")
+    private int rebuildPageSize;
+
+    public MovieSearchServiceImpl(MovieRepository movieRepository, MovieMapper movieMapper,
+                                  PlatformTransactionManager transactionManager) {
+        this.movieRepository = movieRepository;
+        this.movieMapper = movieMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public List<SearchHit> search(String query, boolean matchAll, int limit) {
+        List<String> terms = TextAnalyzer.tokenize(query);
+        lock.readLock().lock();
+        try {
+            return indexes.text().search(terms, matchAll, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void indexMovie(Long movieId, String title, String director, String studio, Set<String> movieCast) {
+        Map<String, Float> termWeights = analyze(title, director, studio, movieCast);
+        List<String> cast = movieCast == null ? List.of() : List.copyOf(movieCast);
+        write(target -> {
+            target.text().add(movieId, termWeights);
+            target.actors().add(movieId, cast);
+        });
+    }
+
+    @Override
+    public void removeMovie(Long movieId) {
+        write(target -> {
+            target.text().remove(movieId);
+            target.actors().remove(movieId);
+        });
+    }
+
+    @Override
+    public long[] findMoviesWithActors(List<String> actors) {
+        lock.readLock().lock();
+        try {
+            return indexes.actors().moviesWithAll(actors);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<CoStar> findCoStars(String actor, int limit) {
+        lock.readLock().lock();
+        try {
+            return indexes.actors().coStars(actor, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (pendingWrites != null) {
+                return;
+            }
+            pendingWrites = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long start = System.nanoTime();
+        Indexes rebuilt = new Indexes();
+        try {
+            Long lastMovieId = null;
+            List<Long> movieIds;
+            do {
+                Long after = lastMovieId;
+                movieIds = movieRepository.findIdsAfter("movieId", Sort.Direction.ASC, after, after, rebuildPageSize);
+                List<Long> pageIds = movieIds;
+                List<MovieDTO> page = pageIds.isEmpty() ? List.of() : readOnlyTransaction.execute(status ->
+                        movieMapper.toDTOs(movieRepository.findRowsByMovieIdIn(pageIds)));
+                // Analysis is the CPU heavy part, so every page is analyzed in parallel
+                List<Map<String, Float>> analyzed = page.parallelStream()
+                        .map(movie -> analyze(movie.getTitle(), movie.getDirector(), movie.getStudio(), movie.getMovieCast()))
+                        .toList();
+                for (int i = 0; i < page.size(); i++) {
+                    MovieDTO movie = page.get(i);
+                    rebuilt.text().add(movie.getMovieId(), analyzed.get(i));
+                    rebuilt.actors().add(movie.getMovieId(), movie.getMovieCast());
+                }
+                if (!movieIds.isEmpty()) {
+                    lastMovieId = movieIds.get(movieIds.size() - 1);
+                }
+            } while (movieIds.size() == rebuildPageSize);
+        } catch (RuntimeException e) {
+            log.error("Failed to rebuild the search index", e);
+            lock.writeLock().lock();
+            pendingWrites = null;
+            lock.writeLock().unlock();
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pendingWrites.forEach(write -> write.accept(rebuilt));
+            pendingWrites = null;
+            indexes = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Search index rebuilt with " + rebuilt.text().size() + " movies, " + rebuilt.text().termCount()
+                + " terms and " + rebuilt.actors().size() + " actors in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    private void write(Consumer<Indexes> write) {
+        lock.writeLock().lock();
+        try {
+            write.accept(indexes);
+            if (pendingWrites != null) {
+                pendingWrites.add(write);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Map<String, Float> analyze(String title, String director, String studio, Set<String> movieCast) {
+        Map<String, Float> termWeights = new HashMap<>();
+        addTerms(termWeights, title, TITLE_WEIGHT);
+        addTerms(termWeights, director, DIRECTOR_WEIGHT);
+        addTerms(termWeights, studio, STUDIO_WEIGHT);
+        if (movieCast != null) {
+            for (String actor : movieCast) {
+                addTerms(termWeights, actor, CAST_WEIGHT);
+            }
+        }
+        return termWeights;
+    }
+
+    private void addTerms(Map<String, Float> termWeights, String text, float weight) {
+        for (String term : TextAnalyzer.tokenize(text)) {
+            termWeights.merge(term, weight, Float::sum);
+        }
+    }
+
+    private record Indexes(InvertedIndex text, ActorIndex actors) {
+
+        private Indexes() {
+            this(new InvertedIndex(), new ActorIndex());
+        }
+    }
+}
@@ -1,21 +1,41 @@
 package com.moviehub.service;
 
 
+import com.moviehub.dto.CatalogVersion;
+import com.moviehub.dto.MovieCursorPageResponse;
 import com.moviehub.dto.MovieDTO;
 import com.moviehub.dto.MoviePageResponse;
+import com.moviehub.dto.MovieSearchResult;
+import com.moviehub.dto.MovieVersion;
+import com.moviehub.search.CoStar;
+import org.springframework.util.function.ThrowingConsumer;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 
 public interface MovieService {
 
     MovieDTO addMovie(MovieDTO movieDTO, MultipartFile file) throws IOException;
 
+    /**
+     * Adds a movie whose poster has already been written to disk
+     *
+     * @param movieDTO         the movie to add
+     * @param poster           the poster file, on the same file store as the poster directory; it is moved into place
+     * @param originalFilename original name of the poster
+     * @return the saved movie
+     * @throws IOException if the poster cannot be stored
+     */
+    MovieDTO addMovie(MovieDTO movieDTO, Path poster, String originalFilename) throws IOException;
+
     MovieDTO getMovie(Long movieId);
 
     List<MovieDTO> getAllMovies();
 
+    void exportMovies(ThrowingConsumer<List<MovieDTO>> batchConsumer);
+
     MovieDTO updateMovie(Long movieId, MovieDTO movieDTO, MultipartFile file) throws IOException;
 
     String deleteMovie(Long movieId) throws IOException;
@@ -24,5 +44,46 @@ public interface MovieService {
 
     MoviePageResponse getAllMoviesWithPaginationAndSorting(Integer pageNumber, Integer pageSize, String sortBy, String direction);
 
+    /**
+     * A page of keyset pagination
+     *
+     * @param cursor       nextCursor of the previous page, or null for the first page
+     * @param pageSize     number of movies per page, from 1 to movie.cursor.max-page-size
+     * @param sortBy       sort property of the first page
+     * @param direction    asc or desc, the sort direction of the first page
+     * @param includeTotal whether to include an estimate of the total number of movies
+     * @return the page and the cursor of the next one
+     * @throws com.moviehub.exception.InvalidLimitException if pageSize is out of range
+     * @throws com.moviehub.exception.InvalidCursorException if the cursor, sort property or direction is invalid
+     */
+    MovieCursorPageResponse getAllMoviesWithCursor(String cursor, Integer pageSize, String sortBy, String direction, boolean includeTotal);
+
+    /**
+     * Full-text search over title, director, studio and cast
+     *
+     * @param query    the search text
+     * @param matchAll true to require every term (AND), false to require any term (OR)
+     * @param limit    maximum number of results, capped at movie.search.max-limit
+     * @return the matching movies, best match first
+     * @throws com.moviehub.exception.InvalidLimitException if limit is less than 1
+     */
+    List<MovieSearchResult> searchMovies(String query, boolean matchAll, int limit);
+
+    List<MovieDTO> getMoviesByActors(List<String> actors);
+
+    List<CoStar> getCoStars(String actor, int limit);
+
+    /**
+     * The newest movies by release year, served from memory
+     *
+     * @param limit number of movies to return, lowered to movie.latest.capacity
+     * @return the movies, newest first
+     * @throws com.moviehub.exception.InvalidLimitException if limit is less than 1
+     */
+    List<MovieDTO> getLatestMovies(int limit);
+
+    MovieVersion getMovieVersion(Long movieId);
+
+    CatalogVersion getCatalogVersion();
 
 }
@@ -1,29 +1,63 @@
 package com.moviehub.service;
 
 
+import com.moviehub.configuration.CacheConfiguration;
+import com.moviehub.configuration.ReplicaDataSource;
+import com.moviehub.dto.CatalogVersion;
+import com.moviehub.dto.MovieCursorPageResponse;
 import com.moviehub.dto.MovieDTO;
 import com.moviehub.dto.MoviePageResponse;
+import com.moviehub.dto.MovieRow;
+import com.moviehub.dto.MovieSearchResult;
+import com.moviehub.dto.MovieVersion;
 import com.moviehub.entity.Movie;
-import com.moviehub.exception.FileExistsException;
+import com.moviehub.exception.InvalidLimitException;
 import com.moviehub.exception.MovieNotFoundException;
+import com.moviehub.search.CoStar;
+import com.moviehub.search.SearchHit;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.function.ThrowingConsumer;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of MovieService. Reads run in read-only transactions, which go to a read replica when
+ * datasource.replicas.urls is set (see DataSourceRoutingConfiguration); writes run in read-write
+ * transactions on the primary, including the lookups they start with. Posters are stored before and deleted
+ * after those transactions, and caches and the search index are only updated once a write has committed.
+ */
 @Service
 @RequiredArgsConstructor
+@Log4j2
+@Timed(value = "movie.service", description = "Time spent in MovieService operations", histogram = true)
 public class MovieServiceImpl implements MovieService {
 
 
@@ -32,22 +66,61 @@ public class MovieServiceImpl implements MovieService {
 
     private final FileService fileService;
 
+    private final PosterVariantService posterVariantService;
+
+    private final MovieCacheInvalidator movieCacheInvalidator;
+
+    private final MovieSearchService movieSearchService;
+
+    private final MovieMapper movieMapper;
+
+    private final LatestMoviesLeaderboard latestMovies;
+
+    private final TransactionTemplate transactionTemplate;
+
     @Value("${project.poster}")
     private String path;
 
-    @Value("${base.url}")
-    private String baseUrl;
+    @Value("${movie.export.batch-size:100}")
+    private int exportBatchSize;
+
+    @Value("${movie.cursor.max-page-size:100}")
+    private int maxCursorPageSize;
+
+    @Value("${movie.search.max-limit:100}")
+    private int maxSearchLimit;
+
+    @Value("${movie.actors.batch-size:500}")
+    private int actorsBatchSize;
+
+    @Value("${movie.count-estimate.ttl:PT30S}")
+    private Duration countEstimateTtl;
+
+    /**
+     * Cached movie count served as the total of keyset pages, refreshed after its TTL and dropped on insert/delete
+     */
+    private volatile CountEstimate countEstimate;
 
 
     @Override
     public MovieDTO addMovie(MovieDTO movieDTO, MultipartFile file) throws IOException {
 
-        if (Files.exists(Paths.get(path + File.separator + file.getOriginalFilename()))) {
-            throw new FileExistsException("File already exists! Please enter another filename");
-        }
-
+        // Name collisions are rejected by the file service with FileExistsException
         String uploadedFileName = fileService.uploadFile(path, file);
+        return saveMovie(movieDTO, uploadedFileName);
+    }
+
+    @Override
+    public MovieDTO addMovie(MovieDTO movieDTO, Path poster, String originalFilename) throws IOException {
+        return saveMovie(movieDTO, fileService.storeFile(path, poster, originalFilename));
+    }
 
+    /**
+     * Saves the movie of a poster that is already stored. Only the insert runs in the transaction: a poster
+     * copied inside it would hold a connection for the whole copy, and the file index would need a second one.
+     * A poster left behind by a failed save is quarantined by OrphanPosterCollector.
+     */
+    private MovieDTO saveMovie(MovieDTO movieDTO, String uploadedFileName) {
         movieDTO.setPoster(uploadedFileName);
 
         Movie movie = new Movie();
@@ -58,181 +131,358 @@ public class MovieServiceImpl implements MovieService {
         movie.setMovieCast(movieDTO.getMovieCast());
         movie.setReleaseYear(movieDTO.getReleaseYear());
         movie.setPoster(movieDTO.getPoster());
-        Movie savedMovie = movieRepository.save(movie);
-
-        String postrUrl = baseUrl + "/file/" + uploadedFileName;
-
-        MovieDTO response = new MovieDTO();
+        MovieDTO saved = transactionTemplate.execute(status -> movieMapper.toDTO(movieRepository.save(movie)));
+
+        TransactionCallbacks.afterCommit(() -> {
+            posterVariantService.generateVariantsAsync(path, uploadedFileName);
+            movieCacheInvalidator.evictAllPages();
+            countEstimate = null;
+            index(saved);
+        });
+        latestMovies.put(saved);
+        return saved;
+    }
 
-        response.setMovieId(savedMovie.getMovieId());
-        response.setTitle(savedMovie.getTitle());
-        response.setDirector(savedMovie.getDirector());
-        response.setStudio(savedMovie.getStudio());
-        response.setMovieCast(savedMovie.getMovieCast());
-        response.setReleaseYear(savedMovie.getReleaseYear());
-        response.setPoster(savedMovie.getPoster());
-        response.setPosterUrl(postrUrl);
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfiguration.MOVIES_CACHE, key = "#movieId")
+    public MovieDTO getMovie(Long movieId) {
 
+        List<MovieRow> rows = readForCache(() -> movieRepository.findRowsByMovieId(movieId));
+        if (rows.isEmpty()) {
+            throw new MovieNotFoundException("Movie not found with id: " + movieId);
+        }
+        return movieMapper.toDTOs(rows).get(0);
+    }
 
-        return response;
+    @Override
+    @Transactional(readOnly = true)
+    public List<MovieDTO> getAllMovies() {
+        return movieMapper.toDTOs(movieRepository.findAllRows());
     }
 
+    /**
+     * Streams the catalog in id order. Movie rows are read from a cursor and folded into movies as they
+     * arrive; no entities are loaded, so memory use does not depend on the size of the catalog.
+     */
     @Override
-    public MovieDTO getMovie(Long movieId) {
+    @Transactional(readOnly = true)
+    public void exportMovies(ThrowingConsumer<List<MovieDTO>> batchConsumer) {
+        try (Stream<MovieRow> rows = movieRepository.streamAllRows(exportBatchSize)) {
+            List<MovieDTO> batch = new ArrayList<>(exportBatchSize);
+            movieMapper.forEachMovie(rows.iterator(), movieDTO -> {
+                batch.add(movieDTO);
+                if (batch.size() == exportBatchSize) {
+                    batchConsumer.accept(List.copyOf(batch));
+                    batch.clear();
+                }
+            });
+            if (!batch.isEmpty()) {
+                batchConsumer.accept(batch);
+            }
+        }
+    }
 
-        Movie movie = movieRepository.findById(movieId).orElseThrow(() -> new MovieNotFoundException("Movie not found with id: " + movieId));
+    /**
+     * Like adding a movie, the new poster is stored outside the transaction, under a name other than the old
+     * one's; the old one is deleted once the update has committed, so a failed update leaves the movie with a
+     * poster that still exists.
+     */
+    @Override
+    @CacheEvict(cacheNames = CacheConfiguration.MOVIES_CACHE, key = "#movieId")
+    public MovieDTO updateMovie(Long movieId, MovieDTO movieDTO, MultipartFile file) throws IOException {
 
-        String postrUrl = baseUrl + "/file/" + movie.getPoster();
+        // Read on the primary, and before storing anything, so an unknown movie is rejected up front
+        String oldPoster = transactionTemplate.execute(status -> findMovie(movieId).getPoster());
+
+        String poster = file == null ? oldPoster : uploadReplacement(file, oldPoster);
+
+        movieDTO.setPoster(poster);
+
+        MovieDTO updated = transactionTemplate.execute(status -> {
+            Movie mv = findMovie(movieId);
+
+            Movie movie = new Movie();
+            movie.setMovieId(mv.getMovieId());
+            movie.setVersion(mv.getVersion());
+            movie.setTitle(movieDTO.getTitle());
+            movie.setDirector(movieDTO.getDirector());
+            movie.setStudio(movieDTO.getStudio());
+            movie.setMovieCast(movieDTO.getMovieCast());
+            movie.setReleaseYear(movieDTO.getReleaseYear());
+            movie.setPoster(poster);
+
+            return movieMapper.toDTO(movieRepository.save(movie));
+        });
+
+        TransactionCallbacks.afterCommit(() -> {
+            if (!poster.equals(oldPoster)) {
+                deletePosterQuietly(oldPoster);
+            }
+            if (file != null) {
+                posterVariantService.generateVariantsAsync(path, poster);
+            }
+            movieCacheInvalidator.evictPagesAffectedBy(movieId);
+            index(updated);
+        });
+        latestMovies.put(updated);
+        return updated;
+    }
 
-        MovieDTO response = new MovieDTO();
-        response.setMovieId(movie.getMovieId());
-        response.setTitle(movie.getTitle());
-        response.setDirector(movie.getDirector());
-        response.setStudio(movie.getStudio());
-        response.setMovieCast(movie.getMovieCast());
-        response.setReleaseYear(movie.getReleaseYear());
-        response.setPosterUrl(postrUrl);
+    @Override
+    @CacheEvict(cacheNames = CacheConfiguration.MOVIES_CACHE, key = "#movieId")
+    public String deleteMovie(Long movieId) throws IOException {
 
-        return response;
+        String poster = transactionTemplate.execute(status -> {
+            Movie mv = findMovie(movieId);
+            movieRepository.delete(mv);
+            return mv.getPoster();
+        });
+
+        // The poster goes only once the movie is gone for good; if the delete rolls back, both stay
+        TransactionCallbacks.afterCommit(() -> {
+            deletePosterQuietly(poster);
+            movieCacheInvalidator.evictAllPages();
+            countEstimate = null;
+            movieSearchService.removeMovie(movieId);
+        });
+        latestMovies.remove(movieId);
+        return "Movie deleted with id: " + movieId;
     }
 
     @Override
-    public List<MovieDTO> getAllMovies() {
-        List<Movie> movies = movieRepository.findAll();
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfiguration.MOVIE_PAGES_CACHE,
+            key = "new com.moviehub.service.MoviePageKey(#pageNumber, #pageSize, null, null)")
+    public MoviePageResponse getAllMoviesWithPagination(Integer pageNumber, Integer pageSize) {
 
-        List<MovieDTO> movieDTOList = new ArrayList<>();
+        Pageable pageable = PageRequest.of(pageNumber, pageSize);
 
-        for (Movie movie : movies) {
-            MovieDTO movieDTO = new MovieDTO();
-            String postrUrl = baseUrl + "/file/" + movie.getPoster();
-            movieDTO.setMovieId(movie.getMovieId());
-            movieDTO.setTitle(movie.getTitle());
-            movieDTO.setDirector(movie.getDirector());
-            movieDTO.setStudio(movie.getStudio());
-            movieDTO.setMovieCast(movie.getMovieCast());
-            movieDTO.setReleaseYear(movie.getReleaseYear());
-            movieDTO.setPoster(movie.getPoster());
-            movieDTO.setPosterUrl(postrUrl);
-            movieDTOList.add(movieDTO);
-        }
+        return readForCache(() -> moviePage(pageable));
+    }
 
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfiguration.MOVIE_PAGES_CACHE,
+            key = "new com.moviehub.service.MoviePageKey(#pageNumber, #pageSize, #sortBy, #direction.toLowerCase())")
+    public MoviePageResponse getAllMoviesWithPaginationAndSorting(Integer pageNumber, Integer pageSize, String sortBy, String direction) {
 
-        return movieDTOList;
+        Sort sort = direction.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
+        Pageable pageable = PageRequest.of(pageNumber, pageSize, sort);
+
+        return readForCache(() -> moviePage(pageable));
     }
 
     @Override
-    public MovieDTO updateMovie(Long movieId, MovieDTO movieDTO, MultipartFile file) throws IOException {
+    @Transactional(readOnly = true)
+    public MovieCursorPageResponse getAllMoviesWithCursor(String cursor, Integer pageSize, String sortBy, String direction, boolean includeTotal) {
 
-        Movie mv = movieRepository.findById(movieId).orElseThrow(() -> new MovieNotFoundException("Movie not found! Movie id: " + movieId));
+        if (pageSize == null || pageSize < 1 || pageSize > maxCursorPageSize) {
+            throw new InvalidLimitException("pageSize must be between 1 and " + maxCursorPageSize + ", was " + pageSize);
+        }
+        MovieCursor position = cursor == null || cursor.isBlank()
+                ? new MovieCursor(MovieCursor.validateSortBy(sortBy), MovieCursor.validateDirection(direction), null, null)
+                : MovieCursor.decode(cursor);
 
-        String fileName = mv.getPoster();
+        // One extra row tells whether another page follows without a count query
+        List<Long> movieIds = movieRepository.findIdsAfter(position.sortBy(), position.direction(),
+                position.lastSortValue(), position.lastMovieId(), pageSize + 1);
 
-        if (file != null && !fileName.equals(mv.getPoster())) {
-            Files.deleteIfExists(Paths.get(path + File.separator + fileName));
-            fileName = fileService.uploadFile(path, file);
+        boolean hasNext = movieIds.size() > pageSize;
+        if (hasNext) {
+            movieIds = movieIds.subList(0, pageSize);
         }
 
-        movieDTO.setPoster(fileName);
+        List<MovieDTO> movieDTOList = movieIds.isEmpty() ? List.of()
+                : movieMapper.toDTOs(movieRepository.findRowsByMovieIdIn(movieIds), movieIds);
 
-        Movie movie = new Movie();
-        movie.setMovieId(mv.getMovieId());
-        movie.setTitle(movieDTO.getTitle());
-        movie.setDirector(movieDTO.getDirector());
-        movie.setStudio(movieDTO.getStudio());
-        movie.setMovieCast(movieDTO.getMovieCast());
-        movie.setReleaseYear(movieDTO.getReleaseYear());
-        movie.setPoster(fileName);
+        String nextCursor = null;
+        if (hasNext) {
+            MovieDTO last = movieDTOList.get(movieDTOList.size() - 1);
+            nextCursor = new MovieCursor(position.sortBy(), position.direction(),
+                    sortValue(last, position.sortBy()), last.getMovieId()).encode();
+        }
 
-        Movie updateMovie = movieRepository.save(movie);
+        return new MovieCursorPageResponse(movieDTOList, pageSize, nextCursor, hasNext,
+                includeTotal ? estimateCount() : null);
+    }
 
-        String postrUrl = baseUrl + "/file/" + fileName;
+    @Override
+    @Transactional(readOnly = true)
+    public List<MovieSearchResult> searchMovies(String query, boolean matchAll, int limit) {
+
+        if (limit < 1) {
+            throw new InvalidLimitException("limit must be at least 1, was " + limit);
+        }
+        List<SearchHit> hits = movieSearchService.search(query, matchAll, Math.min(limit, maxSearchLimit));
+        if (hits.isEmpty()) {
+            return List.of();
+        }
 
-        MovieDTO response = new MovieDTO();
-        response.setMovieId(updateMovie.getMovieId());
-        response.setTitle(updateMovie.getTitle());
-        response.setDirector(updateMovie.getDirector());
-        response.setStudio(updateMovie.getStudio());
-        response.setMovieCast(updateMovie.getMovieCast());
-        response.setReleaseYear(updateMovie.getReleaseYear());
-        response.setPoster(updateMovie.getPoster());
-        response.setPosterUrl(postrUrl);
+        List<Long> movieIds = hits.stream().map(SearchHit::movieId).toList();
+        Map<Long, MovieDTO> movies = new HashMap<>();
+        for (MovieDTO movieDTO : movieMapper.toDTOs(movieRepository.findRowsByMovieIdIn(movieIds))) {
+            movies.put(movieDTO.getMovieId(), movieDTO);
+        }
 
+        List<MovieSearchResult> results = new ArrayList<>(hits.size());
+        for (SearchHit hit : hits) {
+            MovieDTO movieDTO = movies.get(hit.movieId());
+            if (movieDTO != null) { // null if deleted after the search ran
+                results.add(new MovieSearchResult(movieDTO, hit.score()));
+            }
+        }
 
-        return response;
+        return results;
     }
 
     @Override
-    public String deleteMovie(Long movieId) throws IOException {
+    @Transactional(readOnly = true)
+    public List<MovieDTO> getMoviesByActors(List<String> actors) {
 
-        Movie mv = movieRepository.findById(movieId).orElseThrow(() -> new MovieNotFoundException("Movie not found! Movie id: " + movieId));
+        long[] movieIds = movieSearchService.findMoviesWithActors(actors);
+        if (movieIds.length == 0) {
+            return List.of();
+        }
 
-        Long id = mv.getMovieId();
-        Files.deleteIfExists(Paths.get(path + File.separator + mv.getPoster()));
+        // Loaded in fixed-size chunks, so a prolific actor does not make for one unbounded IN list
+        List<MovieDTO> movieDTOList = new ArrayList<>(movieIds.length);
+        for (int from = 0; from < movieIds.length; from += actorsBatchSize) {
+            List<Long> batch = Arrays.stream(movieIds, from, Math.min(from + actorsBatchSize, movieIds.length)).boxed().toList();
+            movieDTOList.addAll(movieMapper.toDTOs(movieRepository.findRowsByMovieIdIn(batch)));
+        }
+        movieDTOList.sort(Comparator.comparing(MovieDTO::getReleaseYear, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(MovieDTO::getMovieId));
 
-        movieRepository.delete(mv);
-        return "Movie deleted with id: " + movieId;
+        return movieDTOList;
     }
 
     @Override
-    public MoviePageResponse getAllMoviesWithPagination(Integer pageNumber, Integer pageSize) {
+    public List<CoStar> getCoStars(String actor, int limit) {
+        return movieSearchService.findCoStars(actor, limit);
+    }
 
-        Pageable pageable = PageRequest.of(pageNumber, pageSize);
+    @Override
+    public List<MovieDTO> getLatestMovies(int limit) {
+        if (limit < 1) {
+            throw new InvalidLimitException("limit must be at least 1, was " + limit);
+        }
+        return latestMovies.latest(limit);
+    }
 
-        Page<Movie> moviePages = movieRepository.findAll(pageable);
+    @Override
+    @Transactional(readOnly = true)
+    public MovieVersion getMovieVersion(Long movieId) {
+        return readForCache(() -> movieRepository.findVersionById(movieId)).orElseThrow(() -> new MovieNotFoundException("Movie not found with id: " + movieId));
+    }
 
-        List<Movie> movies = moviePages.getContent();
+    @Override
+    @Transactional(readOnly = true)
+    public CatalogVersion getCatalogVersion() {
+        return readForCache(movieRepository::findCatalogVersion);
+    }
 
-        List<MovieDTO> movieDTOList = new ArrayList<>();
+    private Movie findMovie(Long movieId) {
+        return movieRepository.findById(movieId).orElseThrow(() -> new MovieNotFoundException("Movie not found! Movie id: " + movieId));
+    }
 
-        for (Movie movie : movies) {
-            MovieDTO movieDTO = new MovieDTO();
-            String postrUrl = baseUrl + "/file/" + movie.getPoster();
-            movieDTO.setMovieId(movie.getMovieId());
-            movieDTO.setTitle(movie.getTitle());
-            movieDTO.setDirector(movie.getDirector());
-            movieDTO.setStudio(movie.getStudio());
-            movieDTO.setMovieCast(movie.getMovieCast());
-            movieDTO.setReleaseYear(movie.getReleaseYear());
-            movieDTO.setPoster(movie.getPoster());
-            movieDTO.setPosterUrl(postrUrl);
-            movieDTOList.add(movieDTO);
+    /**
+     * Stores the new poster of a movie next to its old one. A file whose name sanitizes to the old poster's
+     * gets a name of its own, so the old poster stays in place until the update has committed.
+     */
+    private String uploadReplacement(MultipartFile file, String oldPoster) throws IOException {
+        String fileName = fileService.generateUniqueFileName(file.getOriginalFilename());
+        if (file.isEmpty() || !oldPoster.equals(fileName)) {
+            return fileService.uploadFile(path, file);
         }
+        String extension = fileService.getFileExtension(fileName);
+        String base = extension.isEmpty() ? fileName : fileName.substring(0, fileName.length() - extension.length() - 1);
+        String replacement = base + "-" + UUID.randomUUID().toString().substring(0, 8)
+                + (extension.isEmpty() ? "" : "." + extension);
+
+        fileService.createDirectory(path);
+        Path temp = Files.createTempFile(Paths.get(path), ".upload-", ".tmp");
+        try {
+            file.transferTo(temp);
+            return fileService.storeFile(path, temp, replacement);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private MoviePageResponse moviePage(Pageable pageable) {
+        Page<Long> moviePages = movieRepository.findMovieIds(pageable);
 
-        return new MoviePageResponse(movieDTOList, pageNumber, pageSize,
+        List<MovieDTO> movieDTOList = moviePages.isEmpty() ? List.of()
+                : movieMapper.toDTOs(movieRepository.findRowsByMovieIdIn(moviePages.getContent()), moviePages.getContent());
+
+        return new MoviePageResponse(movieDTOList, pageable.getPageNumber(), pageable.getPageSize(),
                 moviePages.getTotalElements(),
                 moviePages.getTotalPages(),
                 moviePages.isLast());
     }
 
-    @Override
-    public MoviePageResponse getAllMoviesWithPaginationAndSorting(Integer pageNumber, Integer pageSize, String sortBy, String direction) {
+    /**
+     * Runs a read whose result is cached for every client, or that is the version (ETag) of a cached read.
+     * Within the replication lag of an eviction it reads from the primary: a replica that has not caught up
+     * would put the evicted data back for the whole TTL. The connection is picked by the request's first
+     * statement and then kept (open-in-view), so the version reads that come first go the same way.
+     */
+    private <T> T readForCache(Supplier<T> read) {
+        if (ReplicaDataSource.isStuckToPrimary() || !movieCacheInvalidator.isWithinReplicationLag()) {
+            return read.get();
+        }
+        ReplicaDataSource.stickToPrimary();
+        try {
+            return read.get();
+        } finally {
+            ReplicaDataSource.unstick();
+        }
+    }
 
-        Sort sort = direction.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
-        Pageable pageable = PageRequest.of(pageNumber, pageSize, sort);
+    private void index(MovieDTO movie) {
+        movieSearchService.indexMovie(movie.getMovieId(), movie.getTitle(), movie.getDirector(), movie.getStudio(),
+                movie.getMovieCast());
+    }
 
-        Page<Movie> moviePages = movieRepository.findAll(pageable);
+    private void deletePoster(String fileName) throws IOException {
+        fileService.deleteFile(path + File.separator + fileName);
+        // The variants go with the name, unless it was stored again in the meantime
+        if (!fileService.isStored(path, fileName)) {
+            posterVariantService.deleteVariants(path, fileName);
+        }
+    }
 
-        List<Movie> movies = moviePages.getContent();
+    /**
+     * Deletes a poster that is no longer referenced; one that cannot be deleted now is left to OrphanPosterCollector
+     */
+    private void deletePosterQuietly(String fileName) {
+        try {
+            deletePoster(fileName);
+        } catch (IOException e) {
+            log.warn("Could not delete poster " + fileName + ", leaving it to the orphan poster collector: " + e.getMessage());
+        }
+    }
 
-        List<MovieDTO> movieDTOList = new ArrayList<>();
+    private Object sortValue(MovieDTO movie, String sortBy) {
+        return switch (sortBy) {
+            case "title" -> movie.getTitle();
+            case "director" -> movie.getDirector();
+            case "studio" -> movie.getStudio();
+            case "releaseYear" -> movie.getReleaseYear();
+            default -> movie.getMovieId();
+        };
+    }
 
-        for (Movie movie : movies) {
-            MovieDTO movieDTO = new MovieDTO();
-            String postrUrl = baseUrl + "/file/" + movie.getPoster();
-            movieDTO.setMovieId(movie.getMovieId());
-            movieDTO.setTitle(movie.getTitle());
-            movieDTO.setDirector(movie.getDirector());
-            movieDTO.setStudio(movie.getStudio());
-            movieDTO.setMovieCast(movie.getMovieCast());
-            movieDTO.setReleaseYear(movie.getReleaseYear());
-            movieDTO.setPoster(movie.getPoster());
-            movieDTO.setPosterUrl(postrUrl);
-            movieDTOList.add(movieDTO);
+    private long estimateCount() {
+        CountEstimate estimate = countEstimate;
+        if (estimate == null || estimate.expiresAt().isBefore(Instant.now())) {
+            estimate = new CountEstimate(movieRepository.count(), Instant.now().plus(countEstimateTtl));
+            countEstimate = estimate;
         }
+        return estimate.count();
+    }
 
-        return new MoviePageResponse(movieDTOList, pageNumber, pageSize,
-                moviePages.getTotalElements(),
-                moviePages.getTotalPages(),
-                moviePages.isLast());
+    private record CountEstimate(long count, Instant expiresAt) {
     }
 }
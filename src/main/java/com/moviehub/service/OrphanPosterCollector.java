@@ -0,0 +1,229 @@
+package com.moviehub.service;
+
+import com.moviehub.entity.StoredFile;
+import com.moviehub.repository.MovieRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds poster files that no movie refers to, e.g. because saving a movie failed after its poster was stored,
+ * and moves them to {@code .quarantine/<date>/} in the poster directory; quarantined files are deleted once
+ * their retention has passed. Each run checks one batch of names from the file index against the poster
+ * column with a single query and deletes at most one batch from the quarantine, so a pass over a large store
+ * is spread over many runs on the scheduler thread. Posters younger than the grace period are left alone:
+ * their movie may still be being saved, or not be visible on a read replica yet.
+ */
+@Component
+@Log4j2
+public class OrphanPosterCollector {
+
+    static final String QUARANTINE_DIRECTORY = ".quarantine";
+
+    private final FileService fileService;
+
+    private final FileMetadataIndex fileIndex;
+
+    private final MovieRepository movieRepository;
+
+    private final PosterVariantService posterVariantService;
+
+    private final Counter scannedFiles;
+
+    private final Counter quarantinedFiles;
+
+    private final Counter quarantinedBytes;
+
+    private final Counter reclaimedBytes;
+
+    @Value("${project.poster}")
+    private String posterPath;
+
+    @Value("${file.gc.batch-size:500}")
+    private int batchSize;
+
+    @Value("${file.gc.grace-period:PT24H}")
+    private Duration gracePeriod;
+
+    @Value("${file.gc.quarantine-retention:P7D}")
+    private Duration quarantineRetention;
+
+    /**
+     * Last name checked in the current pass over the index, null at the start of a pass
+     */
+    private String cursor;
+
+    private long passScanned;
+
+    private long passQuarantined;
+
+    private long passQuarantinedBytes;
+
+    public OrphanPosterCollector(FileService fileService, FileMetadataIndex fileIndex, MovieRepository movieRepository,
+                                 PosterVariantService posterVariantService, MeterRegistry meterRegistry) {
+        this.fileService = fileService;
+        this.fileIndex = fileIndex;
+        this.movieRepository = movieRepository;
+        this.posterVariantService = posterVariantService;
+        this.scannedFiles = Counter.builder("file.gc.scanned")
+                .description("Poster files checked for a movie referring to them")
+                .baseUnit("files")
+                .register(meterRegistry);
+        this.quarantinedFiles = Counter.builder("file.gc.quarantined")
+                .description("Orphaned poster files moved to the quarantine")
+                .baseUnit("files")
+                .register(meterRegistry);
+        this.quarantinedBytes = Counter.builder("file.gc.quarantined.bytes")
+                .description("Size of the orphaned poster files moved to the quarantine")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.reclaimedBytes = Counter.builder("file.gc.reclaimed.bytes")
+                .description("Disk space freed by deleting quarantined poster files")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks the next batch of posters and clears the next batch of expired quarantine.
+     * Runs on the scheduler only, one run at a time.
+     */
+    @Scheduled(initialDelayString = "${file.gc.interval:60000}", fixedDelayString = "${file.gc.interval:60000}")
+    public void collect() {
+        try {
+            quarantineOrphans();
+            purgeQuarantine();
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Orphan poster collection failed, continuing with the next run: " + e.getMessage());
+        }
+    }
+
+    private void quarantineOrphans() throws IOException {
+        List<String> names = fileIndex.names(posterPath, cursor, batchSize);
+        if (!names.isEmpty()) {
+            Set<String> referenced = movieRepository.findPostersIn(names);
+            List<String> unreferenced = names.stream().filter(name -> !referenced.contains(name)).toList();
+            if (!unreferenced.isEmpty()) {
+                quarantine(unreferenced);
+            }
+            scannedFiles.increment(names.size());
+            passScanned += names.size();
+        }
+
+        if (names.size() < batchSize) {
+            if (passScanned > 0) {
+                log.info("Orphan poster pass done: " + passScanned + " files checked, " + passQuarantined
+                        + " quarantined (" + passQuarantinedBytes + " bytes)");
+            }
+            cursor = null;
+            passScanned = 0;
+            passQuarantined = 0;
+            passQuarantinedBytes = 0;
+        } else {
+            cursor = names.get(names.size() - 1);
+        }
+    }
+
+    private void quarantine(List<String> unreferenced) throws IOException {
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        Path quarantine = Paths.get(posterPath, QUARANTINE_DIRECTORY, LocalDate.now(ZoneOffset.UTC).toString());
+        for (StoredFile file : fileIndex.findAll(posterPath, unreferenced).values()) {
+            if (file.getModifiedAt().isAfter(cutoff)) {
+                continue;
+            }
+            long size = fileService.quarantineFile(posterPath, file.getName(), quarantine);
+            if (size < 0) {
+                continue;
+            }
+            posterVariantService.deleteVariants(posterPath, file.getName());
+            quarantinedFiles.increment();
+            quarantinedBytes.increment(size);
+            passQuarantined++;
+            passQuarantinedBytes += size;
+            log.info("Quarantined orphaned poster " + file.getName() + " (" + size + " bytes)");
+        }
+    }
+
+    /**
+     * Deletes up to one batch of files from quarantine days whose retention has passed,
+     * removing a day's directory once it is empty
+     */
+    private void purgeQuarantine() throws IOException {
+        Path root = Paths.get(posterPath, QUARANTINE_DIRECTORY);
+        int budget = batchSize;
+        try (DirectoryStream<Path> days = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path day : days) {
+                if (budget == 0) {
+                    return;
+                }
+                if (isExpired(day)) {
+                    budget -= purge(day, budget);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing quarantined yet
+        }
+    }
+
+    private boolean isExpired(Path day) {
+        try {
+            Instant quarantinedBy = LocalDate.parse(day.getFileName().toString()).plusDays(1)
+                    .atStartOfDay(ZoneOffset.UTC).toInstant();
+            return quarantinedBy.plus(quarantineRetention).isBefore(Instant.now());
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return number of files deleted
+     */
+    private int purge(Path day, int limit) throws IOException {
+        int deleted = 0;
+        long bytes = 0;
+        boolean more = false;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(day)) {
+            for (Path file : files) {
+                if (deleted == limit) {
+                    more = true;
+                    break;
+                }
+                long size = Files.isRegularFile(file) ? Files.size(file) : 0;
+                if (Files.deleteIfExists(file)) {
+                    deleted++;
+                    bytes += size;
+                }
+            }
+        }
+        if (!more) {
+            try {
+                Files.deleteIfExists(day);
+            } catch (DirectoryNotEmptyException e) {
+                // A poster was quarantined into it after the listing, it is cleared on a later run
+            }
+        }
+        reclaimedBytes.increment(bytes);
+        if (deleted > 0) {
+            log.info("Deleted " + deleted + " quarantined posters from " + day.getFileName() + ", " + bytes + " bytes reclaimed");
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,48 @@
+package com.moviehub.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Service interface for resized poster variants (for example thumb and medium)
+ * stored on disk next to the original poster.
+ */
+public interface PosterVariantService {
+
+    /**
+     * Schedules generation of every configured variant on the background pool
+     *
+     * @param path     directory path of the original poster
+     * @param fileName name of the original poster
+     */
+    void generateVariantsAsync(String path, String fileName);
+
+    /**
+     * Returns a variant of a poster, rendering it first if it is missing or older than the original.
+     * Concurrent requests for the same missing variant share a single rendering.
+     *
+     * @param path     directory path of the original poster
+     * @param fileName name of the original poster
+     * @param variant  name of a configured variant
+     * @return path of the variant file
+     * @throws IOException if the variant cannot be rendered
+     * @throws com.moviehub.exception.InvalidVariantException if the variant is unknown or the file is not an image
+     */
+    Path getVariant(String path, String fileName, String variant) throws IOException;
+
+    /**
+     * Removes every stored variant of a poster
+     *
+     * @param path     directory path of the original poster
+     * @param fileName name of the original poster
+     * @throws IOException if a variant cannot be deleted
+     */
+    void deleteVariants(String path, String fileName) throws IOException;
+
+    /**
+     * @param path directory path of the original posters
+     * @return the directory of every configured variant
+     */
+    List<String> variantDirectories(String path);
+}
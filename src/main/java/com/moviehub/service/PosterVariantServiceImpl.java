@@ -0,0 +1,204 @@
+package com.moviehub.service;
+
+import com.moviehub.exception.InvalidVariantException;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementation of PosterVariantService using ImageIO.
+ * Variants live in {@code .variants/<variant>/} inside the poster directory, placed there with the same
+ * layout as the posters ({@code <fileName>} or e.g. {@code 3f/a2/<fileName>}), and are
+ * written to a temporary file first, so a half-written variant is never served.
+ */
+@Service
+@Log4j2
+public class PosterVariantServiceImpl implements PosterVariantService {
+
+    static final String VARIANTS_DIRECTORY = ".variants";
+
+    private static final List<String> IMAGE_EXTENSIONS = List.of("jpg", "jpeg", "png", "gif");
+
+    private final FileService fileService;
+
+    private final TaskExecutor executor;
+
+    private final Map<String, Integer> variantWidths;
+
+    /**
+     * Renderings in progress, keyed by target path, so each missing variant is produced only once
+     */
+    private final Map<Path, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    public PosterVariantServiceImpl(FileService fileService,
+                                    @Qualifier("posterVariantExecutor") TaskExecutor executor,
+                                    @Value("${poster.variants:thumb:200,medium:600}") String variants) {
+        this.fileService = fileService;
+        this.executor = executor;
+        this.variantWidths = parseVariants(variants);
+    }
+
+    @Override
+    public void generateVariantsAsync(String path, String fileName) {
+        if (!isImage(fileName)) {
+            return;
+        }
+        variantWidths.forEach((variant, width) -> executor.execute(() -> {
+            try {
+                render(path, fileName, variant, width).join();
+            } catch (CompletionException e) {
+                log.error("Failed to generate " + variant + " variant of " + fileName, e.getCause());
+            }
+        }));
+    }
+
+    @Override
+    public Path getVariant(String path, String fileName, String variant) throws IOException {
+        Integer width = variantWidths.get(variant);
+        if (width == null) {
+            throw new InvalidVariantException("Unknown variant: " + variant + ". Available variants: " + variantWidths.keySet());
+        }
+        if (!isImage(fileName)) {
+            throw new InvalidVariantException("Variants are only available for images");
+        }
+
+        Path original = fileService.getFilePath(path, fileName);
+        Path target = variantPath(path, fileName, variant);
+        if (isFresh(original, target)) {
+            return target;
+        }
+        try {
+            return render(path, fileName, variant, width).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void deleteVariants(String path, String fileName) throws IOException {
+        for (String variant : variantWidths.keySet()) {
+            Files.deleteIfExists(variantPath(path, fileName, variant));
+        }
+    }
+
+    @Override
+    public List<String> variantDirectories(String path) {
+        return variantWidths.keySet().stream()
+                .map(variant -> Paths.get(path, VARIANTS_DIRECTORY, variant).toString())
+                .toList();
+    }
+
+    /**
+     * Renders a variant unless another thread is already doing it, in which case its result is shared
+     */
+    private CompletableFuture<Path> render(String path, String fileName, String variant, int width) {
+        Path target = variantPath(path, fileName, variant);
+        CompletableFuture<Path> rendering = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(target, rendering);
+        if (existing != null) {
+            return existing;
+        }
+
+        try {
+            // The original is resolved through the file service, it may be a content-addressed blob
+            Path original = fileService.getFilePath(path, fileName);
+            if (!isFresh(original, target)) {
+                resize(original, target, formatName(fileName), width);
+            }
+            rendering.complete(target);
+        } catch (IOException e) {
+            rendering.completeExceptionally(new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            rendering.completeExceptionally(e);
+        } finally {
+            inFlight.remove(target, rendering);
+        }
+        return rendering;
+    }
+
+    private void resize(Path original, Path target, String format, int width) throws IOException {
+        BufferedImage source = ImageIO.read(original.toFile());
+        if (source == null) {
+            throw new IOException("Unsupported image format: " + original.getFileName());
+        }
+
+        // Never upscale: small posters are copied at their own size
+        int targetWidth = Math.min(width, source.getWidth());
+        int targetHeight = Math.max(1, Math.round((float) source.getHeight() * targetWidth / source.getWidth()));
+        int type = format.equals("jpg") ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+
+        BufferedImage scaled = new BufferedImage(targetWidth, targetHeight, type);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            if (!ImageIO.write(scaled, format, temp.toFile())) {
+                throw new IOException("No image writer for format: " + format);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        log.info("Generated " + targetWidth + "px variant " + target);
+    }
+
+    private boolean isFresh(Path original, Path target) throws IOException {
+        return Files.exists(target)
+                && Files.getLastModifiedTime(target).compareTo(Files.getLastModifiedTime(original)) >= 0;
+    }
+
+    private Path variantPath(String path, String fileName, String variant) {
+        return fileService.layoutPath(Paths.get(path, VARIANTS_DIRECTORY, variant).toString(), fileName);
+    }
+
+    private boolean isImage(String fileName) {
+        return IMAGE_EXTENSIONS.contains(fileService.getFileExtension(fileName).toLowerCase());
+    }
+
+    private String formatName(String fileName) {
+        String ext = fileService.getFileExtension(fileName).toLowerCase();
+        return ext.equals("jpeg") ? "jpg" : ext;
+    }
+
+    private static Map<String, Integer> parseVariants(String variants) {
+        Map<String, Integer> widths = new LinkedHashMap<>();
+        for (String entry : variants.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid poster variant '" + entry + "', expected name:width");
+            }
+            widths.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return widths;
+    }
+}
@@ -0,0 +1,51 @@
+package com.moviehub.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket of bytes per second, lock-free. Instead of a token count the bucket keeps the time at
+ * which it will have paid off every reservation (the generic cell rate algorithm): a reservation moves
+ * that time forward by the time the bytes take at the configured rate, and has to wait for whatever of
+ * it lies beyond the burst allowance. Callers therefore never wait on each other, only on the clock.
+ */
+final class TokenBucket {
+
+    private final double nanosPerByte;
+
+    private final long burstNanos;
+
+    private final AtomicLong paidOffAt;
+
+    /**
+     * @param bytesPerSecond sustained rate
+     * @param burst          how much unused rate the bucket saves up, as time at that rate
+     */
+    TokenBucket(long bytesPerSecond, Duration burst) {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + bytesPerSecond);
+        }
+        this.nanosPerByte = 1_000_000_000d / bytesPerSecond;
+        this.burstNanos = burst.toNanos();
+        this.paidOffAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes bytes from the bucket, going into debt when it holds fewer
+     *
+     * @param bytes number of bytes about to be sent
+     * @return nanoseconds to wait before sending them, 0 if they can go now
+     */
+    long reserve(int bytes) {
+        long cost = (long) Math.ceil(bytes * nanosPerByte);
+        while (true) {
+            long now = System.nanoTime();
+            long current = paidOffAt.get();
+            // A bucket idle for longer than the burst is simply full, it does not save up more
+            long next = Math.max(current, now) + cost;
+            if (paidOffAt.compareAndSet(current, next)) {
+                return Math.max(0, next - burstNanos - now);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.moviehub.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Gauges for the number of files and bytes in the upload directory.
+ * The directory is walked on a schedule rather than on every scrape, the gauges report the last walk.
+ */
+@Component
+@Log4j2
+public class UploadDirectoryMetrics {
+
+    private final Path uploadDirectory;
+
+    private volatile Usage usage;
+
+    public UploadDirectoryMetrics(MeterRegistry meterRegistry, @Value("${file.upload.path}") String uploadPath) {
+        this.uploadDirectory = Paths.get(uploadPath);
+        Gauge.builder("file.storage.files", this, metrics -> metrics.usage == null ? Double.NaN : metrics.usage.files())
+                .description("Number of files in the upload directory")
+                .baseUnit("files")
+                .register(meterRegistry);
+        Gauge.builder("file.storage.size", this, metrics -> metrics.usage == null ? Double.NaN : metrics.usage.bytes())
+                .description("Total size of the files in the upload directory")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Walks the upload directory and publishes the totals
+     */
+    @Scheduled(fixedDelayString = "${file.metrics.scan-interval:60000}")
+    public void refresh() {
+        if (!Files.isDirectory(uploadDirectory)) {
+            usage = new Usage(0, 0);
+            return;
+        }
+        long[] totals = new long[2];
+        try {
+            Files.walkFileTree(uploadDirectory, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (attributes.isRegularFile()) {
+                        totals[0]++;
+                        totals[1] += attributes.size();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    // Files may be deleted while the directory is walked
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            usage = new Usage(totals[0], totals[1]);
+        } catch (IOException e) {
+            log.warn("Could not measure upload directory " + uploadDirectory + ": " + e.getMessage());
+        }
+    }
+
+    private record Usage(long files, long bytes) {
+    }
+}
@@ -0,0 +1,43 @@
+package com.moviehub.service;
+
+import com.moviehub.dto.MovieDTO;
+import com.moviehub.dto.UploadJobResponse;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+/**
+ * Accepts uploads on the request thread only as far as writing them to a staging file;
+ * storing them (and saving the movie for movie uploads) happens on a bounded worker pool.
+ */
+public interface UploadJobService {
+
+    /**
+     * Stages a file and queues it to be stored in the given directory
+     *
+     * @param path destination directory path
+     * @param file the uploaded file
+     * @return the queued job
+     * @throws IOException if the file cannot be staged
+     * @throws com.moviehub.exception.UploadQueueFullException if the processing queue is full
+     */
+    UploadJobResponse submitFile(String path, MultipartFile file) throws IOException;
+
+    /**
+     * Stages a poster and queues it to be stored and the movie to be saved
+     *
+     * @param movieDTO the movie to add
+     * @param file     the poster
+     * @return the queued job
+     * @throws IOException if the poster cannot be staged
+     * @throws com.moviehub.exception.UploadQueueFullException if the processing queue is full
+     */
+    UploadJobResponse submitMovie(MovieDTO movieDTO, MultipartFile file) throws IOException;
+
+    /**
+     * @param jobId identifier of the job
+     * @return the current state of the job
+     * @throws com.moviehub.exception.UploadJobNotFoundException if the job is unknown or has expired
+     */
+    UploadJobResponse getJob(String jobId);
+}
@@ -0,0 +1,178 @@
+package com.moviehub.service;
+
+import com.moviehub.dto.MovieDTO;
+import com.moviehub.dto.UploadJobResponse;
+import com.moviehub.dto.UploadJobStatus;
+import com.moviehub.exception.UploadJobNotFoundException;
+import com.moviehub.exception.UploadQueueFullException;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Implementation of UploadJobService keeping jobs in memory.
+ * A semaphore sized to the worker pool plus its queue admits uploads before they are staged, so a full
+ * queue is reported to the client straight away instead of after the upload was written to disk.
+ */
+@Service
+@Log4j2
+public class UploadJobServiceImpl implements UploadJobService {
+
+    private final FileService fileService;
+
+    private final MovieService movieService;
+
+    private final ThreadPoolTaskExecutor executor;
+
+    private final Semaphore slots;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    @Value("${project.poster}")
+    private String posterPath;
+
+    @Value("${file.processing.retry-after:PT5S}")
+    private Duration retryAfter;
+
+    @Value("${file.processing.job-ttl:PT1H}")
+    private Duration jobTtl;
+
+    public UploadJobServiceImpl(FileService fileService, MovieService movieService,
+                                @Qualifier("uploadProcessingExecutor") ThreadPoolTaskExecutor executor) {
+        this.fileService = fileService;
+        this.movieService = movieService;
+        this.executor = executor;
+        this.slots = new Semaphore(executor.getMaxPoolSize() + executor.getQueueCapacity());
+    }
+
+    @Override
+    public UploadJobResponse submitFile(String path, MultipartFile file) throws IOException {
+        return submit(path, file, (job, staged) -> job.fileName = fileService.storeFile(path, staged, job.originalName));
+    }
+
+    @Override
+    public UploadJobResponse submitMovie(MovieDTO movieDTO, MultipartFile file) throws IOException {
+        return submit(posterPath, file, (job, staged) -> {
+            job.movie = movieService.addMovie(movieDTO, staged, job.originalName);
+            job.fileName = job.movie.getPoster();
+        });
+    }
+
+    @Override
+    public UploadJobResponse getJob(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new UploadJobNotFoundException("Upload job not found: " + jobId);
+        }
+        return job.toResponse();
+    }
+
+    /**
+     * Forgets jobs that finished longer than the configured TTL ago
+     */
+    @Scheduled(fixedDelayString = "${file.processing.job-cleanup-interval:600000}")
+    public void removeFinishedJobs() {
+        Instant cutoff = Instant.now().minus(jobTtl);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    private UploadJobResponse submit(String directory, MultipartFile file, Task task) throws IOException {
+        if (!slots.tryAcquire()) {
+            throw new UploadQueueFullException("Upload processing queue is full, please retry later", retryAfter);
+        }
+        Job job = new Job(UUID.randomUUID().toString(), file.getOriginalFilename(), file.getSize());
+        Path staged = null;
+        try {
+            // Staged next to the destination so that storing it is an atomic move
+            staged = Files.createTempFile(Files.createDirectories(Paths.get(directory)), ".upload-", ".tmp");
+            file.transferTo(staged);
+            jobs.put(job.jobId, job);
+            Path source = staged;
+            executor.execute(() -> process(job, source, task));
+        } catch (IOException | RuntimeException e) {
+            jobs.remove(job.jobId);
+            slots.release();
+            if (staged != null) {
+                Files.deleteIfExists(staged);
+            }
+            if (e instanceof TaskRejectedException) {
+                throw new UploadQueueFullException("Upload processing queue is full, please retry later", retryAfter);
+            }
+            throw e;
+        }
+        log.info("Queued upload job " + job.jobId + " for " + job.originalName);
+        return job.toResponse();
+    }
+
+    private void process(Job job, Path staged, Task task) {
+        job.startedAt = Instant.now();
+        job.status = UploadJobStatus.PROCESSING;
+        UploadJobStatus outcome = UploadJobStatus.FAILED;
+        try {
+            task.run(job, staged);
+            outcome = UploadJobStatus.COMPLETED;
+        } catch (Exception e) {
+            log.error("Upload job " + job.jobId + " failed", e);
+            job.error = e.getMessage();
+        } finally {
+            try {
+                // Still there if the task failed before moving it into place
+                Files.deleteIfExists(staged);
+            } catch (IOException e) {
+                log.warn("Could not delete staged upload " + staged + ": " + e.getMessage());
+            }
+            job.finishedAt = Instant.now();
+            slots.release();
+            job.status = outcome;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Task {
+
+        void run(Job job, Path staged) throws IOException;
+    }
+
+    private static final class Job {
+
+        private final String jobId;
+        private final String originalName;
+        private final long size;
+        private final Instant submittedAt = Instant.now();
+        private volatile UploadJobStatus status = UploadJobStatus.QUEUED;
+        private volatile String fileName;
+        private volatile MovieDTO movie;
+        private volatile String error;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+
+        private Job(String jobId, String originalName, long size) {
+            this.jobId = jobId;
+            this.originalName = originalName;
+            this.size = size;
+        }
+
+        private UploadJobResponse toResponse() {
+            // status is written last by the worker, so reading it first sees the fields it published
+            UploadJobStatus current = status;
+            return new UploadJobResponse(jobId, current, originalName, size, fileName, movie, error,
+                    submittedAt, startedAt, finishedAt);
+        }
+    }
+}
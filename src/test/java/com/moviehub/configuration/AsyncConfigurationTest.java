@@ -0,0 +1,93 @@
+package com.moviehub.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * The thread that writes async response bodies: a worker of the bounded applicationTaskExecutor,
+ * which runs on a virtual thread with spring.threads.virtual.enabled and on a platform thread without it.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:async;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "spring.threads.virtual.enabled=true",
+        "spring.mvc.async.request-timeout=PT5M"
+})
+@AutoConfigureMockMvc
+@Import(AsyncConfigurationTest.WritingThreadController.class)
+class AsyncConfigurationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void writesStreamedBodiesOnVirtualThreads() throws Exception {
+        MvcResult result = mockMvc.perform(get("/test/writing-thread"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertThat(result.getRequest().getAsyncContext().getTimeout()).isEqualTo(TimeUnit.MINUTES.toMillis(5));
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(content().string("virtual mvc-async-"));
+    }
+
+    @Test
+    void boundsPlatformThreadsWithoutVirtualThreads() throws Exception {
+        ThreadPoolTaskExecutor executor = new AsyncConfiguration().applicationTaskExecutor(1, 1, false);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<Thread> writing = executor.submitCompletable(() -> {
+                release.await();
+                return Thread.currentThread();
+            });
+            executor.submit(() -> null);
+
+            assertThatThrownBy(() -> executor.submit(() -> null)).isInstanceOf(TaskRejectedException.class);
+            release.countDown();
+            Thread thread = writing.get(5, TimeUnit.SECONDS);
+            assertThat(thread.isVirtual()).isFalse();
+            assertThat(thread.getName()).startsWith("mvc-async-");
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @RestController
+    static class WritingThreadController {
+
+        @GetMapping("/test/writing-thread")
+        StreamingResponseBody writingThread() {
+            return out -> {
+                Thread thread = Thread.currentThread();
+                String name = thread.getName().replaceAll("\\d+$", "");
+                out.write(((thread.isVirtual() ? "virtual " : "platform ") + name).getBytes(StandardCharsets.UTF_8));
+            };
+        }
+    }
+}
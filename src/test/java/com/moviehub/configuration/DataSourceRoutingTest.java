@@ -0,0 +1,146 @@
+package com.moviehub.configuration;
+
+import com.moviehub.entity.Movie;
+import com.moviehub.repository.MovieRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Routing between two embedded databases, a primary and a replica. Nothing replicates between them,
+ * so where a read was served shows in whether it sees a movie written to the primary. A second replica
+ * points at a database that does not exist, to check that an unreachable replica is skipped.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "datasource.replicas.urls=" + DataSourceRoutingTest.REPLICA_URL + ",jdbc:h2:tcp://localhost:1/unreachable",
+        "datasource.replicas.connection-timeout=250ms",
+        "datasource.read-your-writes=PT5S",
+        "movie.cache.replication-lag=500ms"
+})
+@AutoConfigureMockMvc
+class DataSourceRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    private ReplicaDataSource replicaDataSource;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    private Long movieId;
+
+    @BeforeEach
+    void setUp() {
+        // The replica gets the primary's schema but none of its rows
+        replicate("SCRIPT NODATA");
+        movieId = movieRepository.save(Movie.builder()
+                .title("Primary Only")
+                .director("Director")
+                .studio("Studio")
+                .releaseYear(2024)
+                .poster("poster.jpg")
+                .movieCast(Set.of("Actor"))
+                .build()).getMovieId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieRepository.deleteAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void readsGoToTheReplica() throws Exception {
+        mockMvc.perform(get("/api/v1/movie/" + movieId)).andExpect(status().isNotFound());
+
+        replicate("SCRIPT");
+        mockMvc.perform(get("/api/v1/movie/" + movieId)).andExpect(status().isOk());
+    }
+
+    @Test
+    void unreachableReplicaIsTakenOutOfTheRotation() throws Exception {
+        replicaDataSource.checkHealth();
+        assertThat(replicaDataSource.healthyReplicas()).isEqualTo(1);
+
+        // Every read lands on the one healthy replica
+        for (int i = 0; i < 4; i++) {
+            mockMvc.perform(get("/api/v1/movie/" + movieId)).andExpect(status().isNotFound());
+        }
+    }
+
+    @Test
+    void writesMakeTheClientReadFromThePrimary() throws Exception {
+        mockMvc.perform(delete("/api/v1/movie/delete/" + (movieId + 1000)))
+                .andExpect(cookie().exists(ReadYourWritesFilter.COOKIE_NAME));
+
+        Cookie recentWrite = new Cookie(ReadYourWritesFilter.COOKIE_NAME, String.valueOf(System.currentTimeMillis() + 2000));
+        mockMvc.perform(get("/api/v1/movie/" + movieId).cookie(recentWrite)).andExpect(status().isOk());
+
+        Cookie expired = new Cookie(ReadYourWritesFilter.COOKIE_NAME, String.valueOf(System.currentTimeMillis() - 1));
+        mockMvc.perform(get("/api/v1/movie/" + movieId).cookie(expired)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void cachesAreRefilledFromThePrimaryAfterAWrite() throws Exception {
+        replicate("SCRIPT");
+        mockMvc.perform(get("/api/v1/movie/" + movieId)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/movie/allMoviesPage")).andExpect(jsonPath("$.totalElements").value(1));
+
+        mockMvc.perform(delete("/api/v1/movie/delete/" + movieId)).andExpect(status().isOk());
+
+        // The replica still has the movie, as one lagging behind would; clients without the cookie must not
+        // put it back into the shared caches
+        mockMvc.perform(get("/api/v1/movie/" + movieId)).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/v1/movie/allMoviesPage")).andExpect(jsonPath("$.totalElements").value(0));
+        assertThat(cacheManager.getCache(CacheConfiguration.MOVIES_CACHE).get(movieId)).isNull();
+
+        // Once the replica is assumed to have caught up, reads go back to it
+        Thread.sleep(600);
+        mockMvc.perform(get("/api/v1/movie/" + movieId)).andExpect(status().isOk());
+    }
+
+    /**
+     * Recreates the replica from an H2 script of the primary
+     */
+    private void replicate(String script) {
+        List<String> statements = new JdbcTemplate(primaryDataSource).queryForList(script, String.class);
+        replica.execute("DROP ALL OBJECTS");
+        statements.forEach(replica::execute);
+    }
+}
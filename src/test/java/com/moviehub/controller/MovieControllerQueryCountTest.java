@@ -0,0 +1,130 @@
+package com.moviehub.controller;
+
+import com.moviehub.entity.Movie;
+import com.moviehub.repository.MovieRepository;
+import com.moviehub.service.LatestMoviesLeaderboard;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards the list endpoints against N+1 loading of Movie.movieCast: movies and their casts come from a
+ * single MovieRepository.MOVIE_ROWS projection query, so the number of JDBC statements per request must
+ * not depend on the number of movies returned.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query-count;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureMockMvc
+class MovieControllerQueryCountTest {
+
+    private static final int MOVIES = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private LatestMoviesLeaderboard latestMovies;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < MOVIES; i++) {
+            movies.add(Movie.builder()
+                    .title("Movie " + i)
+                    .director("Director " + i)
+                    .studio("Studio")
+                    .releaseYear(2000 + i)
+                    .poster("poster-" + i + ".jpg")
+                    .movieCast(Set.of("Actor " + i, "Actor " + (i + 1)))
+                    .build());
+        }
+        movieRepository.saveAll(movies);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieRepository.deleteAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void allMoviesLoadsCastWithMovies() throws Exception {
+        // catalog ETag + MOVIE_ROWS of all movies
+        assertStatements("/api/v1/movie/all", 2);
+    }
+
+    @Test
+    void offsetPageLoadsRowsInOneQuery() throws Exception {
+        // catalog ETag + page of ids + count + MOVIE_ROWS of those ids
+        assertStatements("/api/v1/movie/allMoviesPage?pageNumber=1&pageSize=10", 4);
+    }
+
+    @Test
+    void sortedOffsetPageLoadsRowsInOneQuery() throws Exception {
+        // catalog ETag + page of ids + count + MOVIE_ROWS of those ids
+        assertStatements("/api/v1/movie/allMoviesPageSort?pageNumber=1&pageSize=10&sortBy=title&direction=desc", 4);
+    }
+
+    @Test
+    void cursorPageLoadsRowsInOneQuery() throws Exception {
+        // ids after the cursor + MOVIE_ROWS of those ids
+        assertStatements("/api/v1/movie/allMoviesCursor?pageSize=10&sortBy=title", 2);
+    }
+
+    @Test
+    void singleMovieLoadsCastWithMovie() throws Exception {
+        Long movieId = movieRepository.findAll().get(0).getMovieId();
+        // movie ETag + MOVIE_ROWS of the movie
+        assertStatements("/api/v1/movie/" + movieId, 2);
+    }
+
+    @Test
+    void latestMoviesAreServedFromMemoryOnceLoaded() throws Exception {
+        // The movies were saved through the repository, behind the leaderboard's back
+        latestMovies.reset();
+        // newest ids from the release year index + MOVIE_ROWS of those ids, then nothing
+        assertStatements("/api/v1/movie/latest?limit=5", 2);
+        assertStatements("/api/v1/movie/latest?limit=5", 0);
+    }
+
+    private void assertStatements(String url, long expected) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+        assertThat(statistics.getPrepareStatementCount()).as("JDBC statements for " + url).isEqualTo(expected);
+    }
+}
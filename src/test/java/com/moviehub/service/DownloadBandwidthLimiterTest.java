@@ -0,0 +1,58 @@
+package com.moviehub.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throttled downloads on virtual threads, as the applicationTaskExecutor runs them with
+ * spring.threads.virtual.enabled: waiting for bandwidth must release the carrier thread.
+ */
+class DownloadBandwidthLimiterTest {
+
+    private static final int CLIENTS = 50;
+
+    private static final int CHUNK = 16 * 1024;
+
+    @Test
+    void throttledDownloadsWaitAtTheSameTimeOnVirtualThreads() throws Exception {
+        // Each client's one chunk costs half a second at its rate, with nothing saved up
+        DownloadBandwidthLimiter limiter = new DownloadBandwidthLimiter(new SimpleMeterRegistry(),
+                DataSize.ofBytes(0), DataSize.ofBytes(2 * CHUNK), Duration.ZERO);
+        byte[] chunk = new byte[CHUNK];
+
+        long start = System.nanoTime();
+        try (ExecutorService downloads = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> written = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                String client = "10.0.0." + i;
+                written.add(downloads.submit(() -> {
+                    try {
+                        limiter.shape(OutputStream.nullOutputStream(), client).write(chunk);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+            for (Future<?> download : written) {
+                download.get();
+            }
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        // Parked one after another on a pinned carrier, the waits would add up to CLIENTS / 2 seconds
+        assertThat(elapsed).isGreaterThanOrEqualTo(Duration.ofMillis(400)).isLessThan(Duration.ofSeconds(5));
+    }
+}
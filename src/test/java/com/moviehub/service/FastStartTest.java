@@ -0,0 +1,114 @@
+package com.moviehub.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Relocation of the moov box on a minimal MP4: an ftyp box, media data holding two chunks, and a moov
+ * box indexing them through one stco and one co64 table.
+ */
+class FastStartTest {
+
+    private static final byte[] FIRST_CHUNK = "first chunk".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] SECOND_CHUNK = "second chunk".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void movesTrailingMoovToTheFrontAndShiftsChunkOffsets() throws IOException {
+        byte[] ftyp = box("ftyp", "isom".getBytes(StandardCharsets.US_ASCII), new byte[4]);
+        byte[] mdat = box("mdat", FIRST_CHUNK, SECOND_CHUNK);
+        long firstChunk = ftyp.length + 8;
+        long secondChunk = firstChunk + FIRST_CHUNK.length;
+        byte[] moov = moov(firstChunk, secondChunk);
+
+        byte[] rewritten = relocate(concat(ftyp, mdat, moov));
+
+        assertThat(rewritten).hasSize(ftyp.length + mdat.length + moov.length);
+        assertThat(type(rewritten, ftyp.length)).isEqualTo("moov");
+        assertThat(type(rewritten, ftyp.length + moov.length)).isEqualTo("mdat");
+
+        ByteBuffer moved = ByteBuffer.wrap(rewritten, ftyp.length, moov.length).slice();
+        long stcoOffset = Integer.toUnsignedLong(moved.getInt(moov.length - 28));
+        long co64Offset = moved.getLong(moov.length - 8);
+        assertThat(Arrays.copyOfRange(rewritten, (int) stcoOffset, (int) stcoOffset + FIRST_CHUNK.length))
+                .isEqualTo(FIRST_CHUNK);
+        assertThat(Arrays.copyOfRange(rewritten, (int) co64Offset, (int) co64Offset + SECOND_CHUNK.length))
+                .isEqualTo(SECOND_CHUNK);
+    }
+
+    @Test
+    void leavesFilesWithMoovInFrontAlone() throws IOException {
+        byte[] ftyp = box("ftyp", "isom".getBytes(StandardCharsets.US_ASCII), new byte[4]);
+        byte[] moov = moov(0, 0);
+
+        assertThat(relocate(concat(ftyp, moov, box("mdat", FIRST_CHUNK)))).isNull();
+    }
+
+    @Test
+    void leavesTruncatedFilesAlone() throws IOException {
+        byte[] file = concat(box("ftyp", new byte[8]), box("mdat", FIRST_CHUNK), moov(16, 16));
+
+        assertThat(relocate(Arrays.copyOf(file, file.length - 4))).isNull();
+    }
+
+    /**
+     * @return the rewritten file, or null if it was not rewritten
+     */
+    private byte[] relocate(byte[] file) throws IOException {
+        Path source = Files.write(directory.resolve("movie.mp4"), file);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            if (!FastStart.relocateMoov(in, out, 1024 * 1024)) {
+                assertThat(out.size()).isZero();
+                return null;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * moov/trak/mdia/minf/stbl holding an stco table with the first offset and, last, a co64 table with the second
+     */
+    private static byte[] moov(long stcoOffset, long co64Offset) {
+        byte[] stco = box("stco", ByteBuffer.allocate(12).putInt(0).putInt(1).putInt((int) stcoOffset).array());
+        byte[] co64 = box("co64", ByteBuffer.allocate(16).putInt(0).putInt(1).putLong(co64Offset).array());
+        byte[] stbl = box("stbl", stco, co64);
+        return box("moov", box("mvhd", new byte[100]), box("trak", box("mdia", box("minf", stbl))));
+    }
+
+    private static byte[] box(String type, byte[]... contents) {
+        byte[] body = concat(contents);
+        return ByteBuffer.allocate(8 + body.length)
+                .putInt(8 + body.length)
+                .put(type.getBytes(StandardCharsets.US_ASCII))
+                .put(body)
+                .array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    private static String type(byte[] file, int offset) {
+        return new String(file, offset + 4, 4, StandardCharsets.US_ASCII);
+    }
+}